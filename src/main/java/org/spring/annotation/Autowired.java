@@ -10,6 +10,6 @@ import java.lang.annotation.Target;
  * @date 2022年10月24日 21:40
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.CONSTRUCTOR})
 public @interface Autowired {
 }
@@ -0,0 +1,16 @@
+package org.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 类上：单例延迟到第一次使用时再创建，false可以覆盖上下文的默认值
+ * 字段上：注入一个延迟解析的代理，第一次调用方法时才去拿真正的bean，字段类型必须是接口
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD})
+public @interface Lazy {
+    boolean value() default true;
+}
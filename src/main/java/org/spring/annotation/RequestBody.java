@@ -0,0 +1,18 @@
+package org.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 把请求体绑定到参数上：String和byte[]拿原始内容，其他类型按JSON解析
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequestBody {
+    /**
+     * 请求体为空时是否报错
+     */
+    boolean required() default true;
+}
@@ -9,4 +9,14 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RequestMapping {
     String value() default "";
+
+    /**
+     * 是否在异步线程池里执行，不占用容器线程
+     */
+    boolean async() default false;
+
+    /**
+     * 是否允许压缩响应，已经压缩过的内容或者需要边写边发的接口可以关掉
+     */
+    boolean compress() default true;
 }
\ No newline at end of file
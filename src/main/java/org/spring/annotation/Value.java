@@ -10,7 +10,7 @@ import java.lang.annotation.Target;
  * @date 2022年10月24日 21:40
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
 public @interface Value {
     public String value();
 }
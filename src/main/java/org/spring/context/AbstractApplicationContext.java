@@ -3,6 +3,9 @@ package org.spring.context;
 
 import org.spring.factory.BeanFactory;
 
+import java.lang.annotation.Annotation;
+import java.util.List;
+
 /**
  * 实现
  */
@@ -19,4 +22,14 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
     public Object getBean(String beanName) throws Exception {
         return beanFactory.getBean(beanName);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<String> getBeanNamesForAnnotation(Class<? extends Annotation> annotationType) {
+        return beanFactory.getBeanNamesForAnnotation(annotationType);
+    }
+
+    @Override
+    public List<String> getBeanNamesForType(Class<?> type) {
+        return beanFactory.getBeanNamesForType(type);
+    }
+}
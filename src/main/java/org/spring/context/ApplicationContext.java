@@ -1,5 +1,8 @@
 package org.spring.context;
 
+import java.lang.annotation.Annotation;
+import java.util.List;
+
 /**
  * 应用程序上下文
  *
@@ -24,4 +27,20 @@ public interface ApplicationContext {
      * @throws Exception
      */
     Object getBean(String beanName) throws Exception;
-}
\ No newline at end of file
+
+    /**
+     * 类上带有某个注解的所有bean名字
+     *
+     * @param annotationType 注解
+     * @return bean名字，按名字排序
+     */
+    List<String> getBeanNamesForAnnotation(Class<? extends Annotation> annotationType);
+
+    /**
+     * 某个类型(包括子类、实现类)的所有bean名字
+     *
+     * @param type 类型
+     * @return bean名字，按名字排序
+     */
+    List<String> getBeanNamesForType(Class<?> type);
+}
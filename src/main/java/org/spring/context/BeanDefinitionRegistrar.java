@@ -0,0 +1,50 @@
+package org.spring.context;
+
+import org.spring.reader.XmlBeanDefinitionReader;
+
+import java.util.Arrays;
+
+/**
+ * 上下文刷新时的注册阶段
+ * 在XML和扫描得到的Bean定义读完之后、Bean创建之前调用，可以追加扫描的包或者直接注册Bean定义
+ */
+@FunctionalInterface
+public interface BeanDefinitionRegistrar {
+
+    void registerBeanDefinitions(XmlBeanDefinitionReader reader) throws Exception;
+
+    /**
+     * 这个扩展注册的内容由哪些输入决定(扫描的包、用到的配置值)，作为注册表快照key的一部分
+     *
+     * @return 返回null表示说不清，这时不使用快照
+     */
+    default String getSnapshotKey() {
+        return null;
+    }
+
+    /**
+     * 扫描几个包的注册扩展，快照key就是包名
+     *
+     * @param basePackages 包名，空串和null会被忽略
+     */
+    static BeanDefinitionRegistrar scan(String... basePackages) {
+        String[] packages = Arrays.stream(basePackages)
+                .filter(basePackage -> basePackage != null && !basePackage.isBlank())
+                .map(String::trim)
+                .toArray(String[]::new);
+        return new BeanDefinitionRegistrar() {
+            @Override
+            public void registerBeanDefinitions(XmlBeanDefinitionReader reader) {
+                for (String basePackage : packages) {
+                    reader.scan(basePackage);
+                }
+            }
+
+            @Override
+            public String getSnapshotKey() {
+                return "scan:" + String.join(",", packages);
+            }
+        };
+    }
+
+}
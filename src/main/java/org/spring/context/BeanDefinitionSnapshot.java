@@ -0,0 +1,292 @@
+package org.spring.context;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.BeanReference;
+import org.spring.entity.PropertyValue;
+import org.spring.env.Environment;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * BeanDefinition注册表的二进制快照，重启时跳过XML解析和classpath扫描
+ * <p>
+ * 文件名是 beans-{配置}-{classpath}.snapshot：前半是配置位置和注册扩展的 {@link BeanDefinitionRegistrar#getSnapshotKey()} 的摘要，
+ * 后半是classpath上每个目录/jar的修改时间的摘要，任何class或配置文件变了后半就变，旧快照失效。
+ * 写入新快照后删除同一配置的其他快照，不同配置(比如多个应用共用目录)的快照互不影响。
+ * 注册扩展说不清自己依赖什么(getSnapshotKey()返回null)时不使用快照。
+ * 格式：魔数 版本 key bean个数，每个bean：名字 类名 是否单例 lazy-init 属性个数 属性(名字 类型 值)
+ * <p>
+ * 只有设置了 myspring.snapshot.dir 才启用
+ */
+@Slf4j
+public final class BeanDefinitionSnapshot {
+
+    public static final String SNAPSHOT_DIR_PROPERTY = "myspring.snapshot.dir";
+
+    private static final String FILE_PREFIX = "beans-";
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x4D534244;
+    private static final int VERSION = 1;
+
+    private static final byte LITERAL = 0;
+    private static final byte REFERENCE = 1;
+    private static final byte LAZY_REFERENCE = 2;
+    private static final byte NULL = 3;
+
+    private final Path file;
+    private final String key;
+
+    private BeanDefinitionSnapshot(Path file, String key) {
+        this.file = file;
+        this.key = key;
+    }
+
+    /**
+     * @param location  XML配置位置
+     * @param registrar 注册扩展，可以为null
+     * @return 没有启用快照或者注册扩展不支持快照时返回null
+     */
+    static BeanDefinitionSnapshot of(Environment environment, String location, BeanDefinitionRegistrar registrar) {
+        String dir = environment.getProperty(SNAPSHOT_DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        String registrarKey = registrar == null ? "" : registrar.getSnapshotKey();
+        if (registrarKey == null) {
+            log.info("注册扩展{}没有提供快照key，不使用快照", registrar.getClass().getName());
+            return null;
+        }
+        try {
+            String key = hash(location, registrarKey) + "-" + classpathStamp();
+            return new BeanDefinitionSnapshot(Paths.get(dir.trim()).resolve(FILE_PREFIX + key + FILE_SUFFIX), key);
+        } catch (IOException | RuntimeException e) {
+            log.warn("计算快照key失败，不使用快照: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照不存在、key不匹配或者已损坏时返回null
+     */
+    Map<String, BeanDefinition> load() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, BeanDefinition> registry = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                BeanDefinition beanDefinition = new BeanDefinition();
+                beanDefinition.setBeanClassName(in.readUTF());
+                beanDefinition.setSingleton(in.readBoolean());
+                byte lazyInit = in.readByte();
+                beanDefinition.setLazyInit(lazyInit < 0 ? null : lazyInit == 1);
+                int properties = in.readInt();
+                List<PropertyValue> propertyValues = new ArrayList<>(properties);
+                for (int j = 0; j < properties; j++) {
+                    String propertyName = in.readUTF();
+                    byte kind = in.readByte();
+                    Object value = switch (kind) {
+                        case LITERAL -> in.readUTF();
+                        case REFERENCE -> new BeanReference(in.readUTF());
+                        case LAZY_REFERENCE -> new BeanReference(in.readUTF(), true);
+                        case NULL -> null;
+                        default -> throw new IOException("未知的属性类型: " + kind);
+                    };
+                    propertyValues.add(new PropertyValue(propertyName, value));
+                }
+                beanDefinition.setPropertyValues(propertyValues);
+                registry.put(name, beanDefinition);
+            }
+            log.info("从快照{}恢复了{}个BeanDefinition", file, count);
+            return registry;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取快照{}失败，重新解析: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 写快照，先写临时文件再原子替换，有不能序列化的字面量时放弃
+     */
+    void save(Map<String, BeanDefinition> registry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(registry.size());
+            for (Map.Entry<String, BeanDefinition> entry : new TreeMap<>(registry).entrySet()) {
+                BeanDefinition beanDefinition = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(beanDefinition.getBeanClass().getName());
+                out.writeBoolean(beanDefinition.isSingleton());
+                Boolean lazyInit = beanDefinition.getLazyInit();
+                out.writeByte(lazyInit == null ? -1 : lazyInit ? 1 : 0);
+                List<PropertyValue> propertyValues = beanDefinition.getPropertyValues();
+                out.writeInt(propertyValues == null ? 0 : propertyValues.size());
+                if (propertyValues == null) continue;
+                for (PropertyValue propertyValue : propertyValues) {
+                    out.writeUTF(propertyValue.getName());
+                    Object value = propertyValue.getValue();
+                    if (value == null) {
+                        out.writeByte(NULL);
+                    } else if (value instanceof BeanReference reference) {
+                        out.writeByte(reference.isLazy() ? LAZY_REFERENCE : REFERENCE);
+                        out.writeUTF(reference.getName());
+                    } else if (value instanceof String literal) {
+                        out.writeByte(LITERAL);
+                        out.writeUTF(literal);
+                    } else {
+                        log.info("{}.{} 的值不是字符串，不写快照", entry.getKey(), propertyValue.getName());
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("序列化快照失败: {}", e.toString());
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), FILE_PREFIX, ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            log.info("写入快照{}，{}个BeanDefinition，{}字节", file, registry.size(), bytes.size());
+        } catch (IOException e) {
+            log.warn("写快照{}失败: {}", file, e.toString());
+            return;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    //下次写入时再清理
+                }
+            }
+        }
+        prune();
+    }
+
+    /**
+     * 删除同一配置下classpath已经过期的快照
+     */
+    private void prune() {
+        String prefix = FILE_PREFIX + key.substring(0, key.indexOf('-') + 1);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(file.getParent(),
+                path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(prefix) && name.endsWith(FILE_SUFFIX) && !path.equals(file);
+                })) {
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+                log.debug("删除过期的快照{}", path);
+            }
+        } catch (IOException e) {
+            log.warn("清理过期快照失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * classpath上每个根的路径、文件数和最大修改时间
+     */
+    private static String classpathStamp() throws IOException {
+        MessageDigest digest = newDigest();
+        for (Path root : classpathRoots()) {
+            update(digest, root.toString());
+            if (Files.isDirectory(root)) {
+                long[] stat = new long[2];
+                try (Stream<Path> paths = Files.walk(root)) {
+                    paths.forEach(path -> {
+                        try {
+                            stat[0]++;
+                            stat[1] = Math.max(stat[1], Files.getLastModifiedTime(path).toMillis());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                update(digest, stat[0] + ":" + stat[1]);
+            } else if (Files.isRegularFile(root)) {
+                update(digest, Files.size(root) + ":" + Files.getLastModifiedTime(root).toMillis());
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static String hash(String... values) {
+        MessageDigest digest = newDigest();
+        for (String value : values) {
+            update(digest, value);
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * java.class.path 加上上下文类加载器链上所有URLClassLoader的file地址
+     */
+    private static Set<Path> classpathRoots() {
+        Set<Path> roots = new LinkedHashSet<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                roots.add(Paths.get(entry).toAbsolutePath().normalize());
+            }
+        }
+        for (ClassLoader cl = Thread.currentThread().getContextClassLoader(); cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader urlClassLoader) {
+                for (URL url : urlClassLoader.getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            roots.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+                        } catch (URISyntaxException | IllegalArgumentException ignored) {
+                            //不是本地文件，跳过
+                        }
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+}
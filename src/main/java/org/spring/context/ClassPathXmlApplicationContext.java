@@ -1,32 +1,69 @@
 package org.spring.context;
 
+import lombok.extern.slf4j.Slf4j;
 import org.spring.entity.BeanDefinition;
+import org.spring.env.Environment;
 import org.spring.factory.AbstractBeanFactory;
 import org.spring.factory.AutowiredCapableBeanFactory;
 import org.spring.io.ResourceLoader;
 import org.spring.reader.XmlBeanDefinitionReader;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
  * 程序上下文类实现
  */
+@Slf4j
 public class ClassPathXmlApplicationContext extends AbstractApplicationContext {
 
+    /**
+     * 默认的配置文件
+     */
+    public static final String DEFAULT_PROPERTIES_LOCATION = "application.properties";
+
+    /**
+     * 上下文默认是否延迟创建单例，系统属性、环境变量、配置文件里都可以配置
+     */
+    public static final String DEFAULT_LAZY_INIT_PROPERTY = "myspring.lazyInit";
+
     private final Object startupShutdownMonitor = new Object();
     private final String location;
+    private final BeanDefinitionRegistrar registrar;
+    private final Environment environment;
 
     public ClassPathXmlApplicationContext(String location) throws Exception {
+        this(location, null);
+    }
+
+    /**
+     * @param location  XML配置位置，多个用逗号分隔
+     * @param registrar 注册阶段的扩展，可以为null
+     */
+    public ClassPathXmlApplicationContext(String location, BeanDefinitionRegistrar registrar) throws Exception {
+        this(location, Environment.standard(DEFAULT_PROPERTIES_LOCATION), registrar);
+    }
+
+    /**
+     * @param location    XML配置位置
+     * @param environment 占位符解析用的配置
+     * @param registrar   注册阶段的扩展，可以为null
+     */
+    public ClassPathXmlApplicationContext(String location, Environment environment, BeanDefinitionRegistrar registrar) throws Exception {
         super();
         this.location = location;
+        this.environment = environment;
+        this.registrar = registrar;
         refresh();
     }
 
     public void refresh() throws Exception {
         synchronized (startupShutdownMonitor) {
+            long start = System.nanoTime();
             AbstractBeanFactory beanFactory = obtainBeanFactory();
             prepareBeanFactory(beanFactory);
             this.beanFactory = beanFactory;
+            log.info("上下文刷新完成，耗时{}ms", (System.nanoTime() - start) / 1_000_000);
         }
     }
 
@@ -41,24 +78,44 @@ public class ClassPathXmlApplicationContext extends AbstractApplicationContext {
      * @throws Exception
      */
     private AbstractBeanFactory obtainBeanFactory() throws Exception {
-        XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(new ResourceLoader());
-        beanDefinitionReader.loadBeanDefinitions(location);
+        //有可用的快照就直接恢复注册表，不解析XML也不扫描
+        BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.of(environment, location, registrar);
+        Map<String, BeanDefinition> registry = snapshot == null ? null : snapshot.load();
+        if (registry == null) {
+            XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(new ResourceLoader());
+            //多个配置文件用逗号分隔，并行解析
+            beanDefinitionReader.loadBeanDefinitions(Arrays.stream(location.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toArray(String[]::new));
+            if (registrar != null) {
+                registrar.registerBeanDefinitions(beanDefinitionReader);
+            }
+            registry = beanDefinitionReader.getRegistry();
+            if (snapshot != null) {
+                snapshot.save(registry);
+            }
+        }
         AbstractBeanFactory beanFactory = new AutowiredCapableBeanFactory();
+        beanFactory.setEnvironment(environment);
+        String lazyInit = environment.getProperty(DEFAULT_LAZY_INIT_PROPERTY);
+        if (lazyInit != null) {
+            beanFactory.setDefaultLazyInit(Boolean.parseBoolean(lazyInit.trim()));
+        }
         //获取Reader的注册map读取注入的Bean
-        for (Map.Entry<String, BeanDefinition> beanDefinitionEntry : beanDefinitionReader.getRegistry().entrySet()) {
+        for (Map.Entry<String, BeanDefinition> beanDefinitionEntry : registry.entrySet()) {
             beanFactory.registerBeanDefinition(beanDefinitionEntry.getKey(), beanDefinitionEntry.getValue());
         }
         return beanFactory;
     }
 
+    public Environment getEnvironment() {
+        return environment;
+    }
 
     public void addNewBeanDefinition(String name, BeanDefinition definition) throws Exception {
         XmlBeanDefinitionReader.processAnnotationProperty(definition.getBeanClass(), definition);
         beanFactory.registerBeanDefinition(name, definition);
 
     }
-
-    public void refreshBeanFactory() throws Exception {
-        prepareBeanFactory((AbstractBeanFactory) beanFactory);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package org.spring.convert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类型转换服务，按 (源类型, 目标类型) 缓存转换器，同一对类型只查找组合一次
+ * <p>
+ * 字符串可以转换为：基本类型及包装类、BigDecimal、BigInteger、枚举、
+ * Duration(10s、500ms、PT1M，纯数字按毫秒)、{@link DataSize}(10KB、5MB)、
+ * 有公开静态工厂方法 valueOf/fromString/parse/of/create(String或CharSequence) 的类型
+ * (UUID、LocalDate、Instant、ZoneId、URI等，格式就是它们toString的格式)，
+ * 以及这些类型的数组、List、Set(逗号分隔)。
+ * 转换出来的集合是不可变的，因为同一个值可能被多个prototype实例共享
+ */
+public class ConversionService {
+
+    private static final ConversionService SHARED = new ConversionService();
+
+    private static final Converter<Object, Object> IDENTITY = source -> source;
+
+    /**
+     * 按顺序查找的静态工厂方法名
+     */
+    private static final String[] FACTORY_METHODS = {"valueOf", "fromString", "parse", "of", "create"};
+
+    /**
+     * 没有转换器时放进缓存的占位
+     */
+    private static final Converter<Object, Object> NONE = source -> {
+        throw new IllegalStateException();
+    };
+
+    private final Map<ConvertiblePair, Converter<Object, Object>> registered = new ConcurrentHashMap<>();
+
+    private final Map<ConvertiblePair, Converter<Object, Object>> cache = new ConcurrentHashMap<>();
+
+    public static ConversionService getSharedInstance() {
+        return SHARED;
+    }
+
+    /**
+     * 注册自定义转换器，优先于内置转换器
+     */
+    @SuppressWarnings("unchecked")
+    public <S, T> void addConverter(Class<S> sourceType, Class<T> targetType, Converter<? super S, ? extends T> converter) {
+        registered.put(new ConvertiblePair(sourceType, targetType), (Converter<Object, Object>) converter);
+        cache.clear();
+    }
+
+    public boolean canConvert(Class<?> sourceType, Type targetType) {
+        return getConverter(sourceType, targetType) != null;
+    }
+
+    /**
+     * 查找转换器，结果会被缓存
+     *
+     * @param sourceType 源类型
+     * @param targetType 目标类型，可以是带泛型的集合类型
+     * @return 转换器，不支持时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <S> Converter<S, Object> getConverter(Class<S> sourceType, Type targetType) {
+        ConvertiblePair pair = new ConvertiblePair(sourceType, targetType);
+        Converter<Object, Object> converter = cache.get(pair);
+        if (converter == null) {
+            converter = findConverter(sourceType, targetType);
+            cache.put(pair, converter == null ? NONE : converter);
+        }
+        return converter == NONE ? null : (Converter<S, Object>) converter;
+    }
+
+    /**
+     * 转换一个值，null原样返回
+     */
+    @SuppressWarnings("unchecked")
+    public Object convert(Object source, Type targetType) {
+        if (source == null) {
+            return null;
+        }
+        Converter<Object, Object> converter = getConverter((Class<Object>) source.getClass(), targetType);
+        if (converter == null) {
+            throw new IllegalArgumentException("不支持把 " + source.getClass().getName() + " 转换为 " + targetType.getTypeName());
+        }
+        return converter.convert(source);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Converter<Object, Object> findConverter(Class<?> sourceType, Type targetType) {
+        Class<?> rawTarget = rawClass(targetType);
+        Converter<Object, Object> custom = registered.get(new ConvertiblePair(sourceType, rawTarget));
+        if (custom != null) {
+            return custom;
+        }
+        if (wrap(rawTarget).isAssignableFrom(sourceType) && !(targetType instanceof ParameterizedType)) {
+            return IDENTITY;
+        }
+        if (sourceType != String.class) {
+            return null;
+        }
+        Converter<String, ?> simple = StringConverters.find(rawTarget);
+        if (simple != null) {
+            return source -> simple.convert((String) source);
+        }
+        if (rawTarget == Duration.class) {
+            return source -> parseDuration((String) source);
+        }
+        if (rawTarget == DataSize.class) {
+            return source -> DataSize.parse((String) source);
+        }
+        Converter<Object, Object> factory = factoryMethodConverter(rawTarget);
+        if (factory != null) {
+            return factory;
+        }
+        if (rawTarget.isArray()) {
+            Class<?> componentType = rawTarget.getComponentType();
+            Converter<Object, Object> element = getConverter((Class<Object>) (Class<?>) String.class, componentType);
+            if (element == null) return null;
+            return source -> {
+                List<String> parts = split((String) source);
+                Object array = Array.newInstance(componentType, parts.size());
+                for (int i = 0; i < parts.size(); i++) {
+                    Array.set(array, i, element.convert(parts.get(i)));
+                }
+                return array;
+            };
+        }
+        if (rawTarget == List.class || rawTarget == Collection.class || rawTarget == Iterable.class || rawTarget == Set.class) {
+            Converter<Object, Object> element = getConverter((Class<Object>) (Class<?>) String.class, elementType(targetType));
+            if (element == null) return null;
+            boolean set = rawTarget == Set.class;
+            return source -> {
+                List<Object> values = new ArrayList<>();
+                for (String part : split((String) source)) {
+                    values.add(element.convert(part));
+                }
+                return set ? Collections.unmodifiableSet(new LinkedHashSet<>(values)) : Collections.unmodifiableList(values);
+            };
+        }
+        return null;
+    }
+
+    /**
+     * 用目标类型自己的静态工厂方法从字符串创建，比如 UUID.fromString、LocalDate.parse
+     */
+    private static Converter<Object, Object> factoryMethodConverter(Class<?> targetType) {
+        if (targetType.isPrimitive() || targetType.isArray() || !Modifier.isPublic(targetType.getModifiers())) {
+            return null;
+        }
+        for (String name : FACTORY_METHODS) {
+            for (Class<?> parameterType : new Class<?>[]{String.class, CharSequence.class}) {
+                Method method;
+                try {
+                    method = targetType.getMethod(name, parameterType);
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                if (!Modifier.isStatic(method.getModifiers()) || !targetType.isAssignableFrom(method.getReturnType())) {
+                    continue;
+                }
+                MethodHandle handle;
+                try {
+                    handle = MethodHandles.publicLookup().unreflect(method)
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                } catch (IllegalAccessException e) {
+                    continue;
+                }
+                return source -> {
+                    try {
+                        return (Object) handle.invokeExact((Object) ((String) source).trim());
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        throw new IllegalArgumentException("无法转换为" + targetType.getName() + ": " + source, t);
+                    }
+                };
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 10s 500ms 1m 2h 1d 100us 100ns，ISO-8601格式(PT10S)，纯数字按毫秒
+     */
+    static Duration parseDuration(String text) {
+        String s = text.trim();
+        if (s.isEmpty()) {
+            throw new IllegalArgumentException("无法解析时长: " + text);
+        }
+        if (s.charAt(0) == 'P' || s.charAt(0) == 'p' || s.startsWith("-P")) {
+            return Duration.parse(s);
+        }
+        int i = 0;
+        while (i < s.length() && (Character.isDigit(s.charAt(i)) || (i == 0 && s.charAt(i) == '-'))) i++;
+        long amount = Long.parseLong(s.substring(0, i));
+        ChronoUnit unit = switch (s.substring(i).trim().toLowerCase(Locale.ROOT)) {
+            case "", "ms" -> ChronoUnit.MILLIS;
+            case "ns" -> ChronoUnit.NANOS;
+            case "us" -> ChronoUnit.MICROS;
+            case "s" -> ChronoUnit.SECONDS;
+            case "m" -> ChronoUnit.MINUTES;
+            case "h" -> ChronoUnit.HOURS;
+            case "d" -> ChronoUnit.DAYS;
+            default -> throw new IllegalArgumentException("无法解析时长: " + text);
+        };
+        return Duration.of(amount, unit);
+    }
+
+    private static List<String> split(String source) {
+        List<String> parts = new ArrayList<>();
+        for (String part : source.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                parts.add(trimmed);
+            }
+        }
+        return parts;
+    }
+
+    private static Type elementType(Type collectionType) {
+        if (collectionType instanceof ParameterizedType parameterized) {
+            Type element = parameterized.getActualTypeArguments()[0];
+            if (element instanceof WildcardType wildcard) {
+                element = wildcard.getUpperBounds()[0];
+            }
+            return element;
+        }
+        return String.class;
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+        if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return Void.class;
+    }
+
+    private record ConvertiblePair(Class<?> sourceType, Type targetType) {
+    }
+}
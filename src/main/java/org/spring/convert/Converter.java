@@ -0,0 +1,14 @@
+package org.spring.convert;
+
+/**
+ * 类型转换器
+ *
+ * @param <S> 源类型
+ * @param <T> 目标类型
+ */
+@FunctionalInterface
+public interface Converter<S, T> {
+
+    T convert(S source);
+
+}
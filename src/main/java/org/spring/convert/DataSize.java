@@ -0,0 +1,74 @@
+package org.spring.convert;
+
+import java.util.Locale;
+
+/**
+ * 数据大小，比如 10KB、5MB，按1024进制
+ */
+public final class DataSize implements Comparable<DataSize> {
+
+    private final long bytes;
+
+    private DataSize(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public static DataSize ofBytes(long bytes) {
+        return new DataSize(bytes);
+    }
+
+    /**
+     * 解析 数字+单位(B/KB/MB/GB/TB，大小写不敏感，可以省略B)，没有单位按字节
+     */
+    public static DataSize parse(String text) {
+        String s = text.trim().toUpperCase(Locale.ROOT);
+        int i = 0;
+        while (i < s.length() && (Character.isDigit(s.charAt(i)) || (i == 0 && s.charAt(i) == '-'))) i++;
+        if (i == 0 || (i == 1 && s.charAt(0) == '-')) {
+            throw new IllegalArgumentException("无法解析数据大小: " + text);
+        }
+        long amount = Long.parseLong(s.substring(0, i));
+        String unit = s.substring(i).trim();
+        long multiplier = switch (unit) {
+            case "", "B" -> 1L;
+            case "K", "KB" -> 1L << 10;
+            case "M", "MB" -> 1L << 20;
+            case "G", "GB" -> 1L << 30;
+            case "T", "TB" -> 1L << 40;
+            default -> throw new IllegalArgumentException("无法解析数据大小: " + text);
+        };
+        return new DataSize(Math.multiplyExact(amount, multiplier));
+    }
+
+    public long toBytes() {
+        return bytes;
+    }
+
+    public long toKilobytes() {
+        return bytes >> 10;
+    }
+
+    public long toMegabytes() {
+        return bytes >> 20;
+    }
+
+    @Override
+    public int compareTo(DataSize other) {
+        return Long.compare(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DataSize other && other.bytes == bytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return bytes + "B";
+    }
+}
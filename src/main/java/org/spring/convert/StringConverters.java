@@ -0,0 +1,95 @@
+package org.spring.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 字符串到基本类型、数字、布尔、枚举的转换器
+ * 按目标类型提前选好，使用方在启动时拿到转换器保存起来，转换时不再判断类型
+ */
+public final class StringConverters {
+
+    private static final Map<Class<?>, Converter<String, ?>> CONVERTERS = new HashMap<>();
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+
+    static {
+        CONVERTERS.put(String.class, s -> s);
+        CONVERTERS.put(int.class, s -> Integer.valueOf(s.trim()));
+        CONVERTERS.put(Integer.class, s -> Integer.valueOf(s.trim()));
+        CONVERTERS.put(long.class, s -> Long.valueOf(s.trim()));
+        CONVERTERS.put(Long.class, s -> Long.valueOf(s.trim()));
+        CONVERTERS.put(short.class, s -> Short.valueOf(s.trim()));
+        CONVERTERS.put(Short.class, s -> Short.valueOf(s.trim()));
+        CONVERTERS.put(byte.class, s -> Byte.valueOf(s.trim()));
+        CONVERTERS.put(Byte.class, s -> Byte.valueOf(s.trim()));
+        CONVERTERS.put(double.class, s -> Double.valueOf(s.trim()));
+        CONVERTERS.put(Double.class, s -> Double.valueOf(s.trim()));
+        CONVERTERS.put(float.class, s -> Float.valueOf(s.trim()));
+        CONVERTERS.put(Float.class, s -> Float.valueOf(s.trim()));
+        CONVERTERS.put(boolean.class, StringConverters::toBoolean);
+        CONVERTERS.put(Boolean.class, StringConverters::toBoolean);
+        CONVERTERS.put(char.class, StringConverters::toCharacter);
+        CONVERTERS.put(Character.class, StringConverters::toCharacter);
+        CONVERTERS.put(BigDecimal.class, s -> new BigDecimal(s.trim()));
+        CONVERTERS.put(BigInteger.class, s -> new BigInteger(s.trim()));
+
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(double.class, 0D);
+        PRIMITIVE_DEFAULTS.put(float.class, 0F);
+        PRIMITIVE_DEFAULTS.put(boolean.class, false);
+        PRIMITIVE_DEFAULTS.put(char.class, '\0');
+    }
+
+    private StringConverters() {
+    }
+
+    /**
+     * 找到转换到目标类型的转换器
+     *
+     * @param targetType 目标类型
+     * @return 转换器，不支持的类型返回null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Converter<String, ?> find(Class<?> targetType) {
+        Converter<String, ?> converter = CONVERTERS.get(targetType);
+        if (converter != null) return converter;
+        if (targetType.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) targetType;
+            return s -> Enum.valueOf(enumType, s.trim());
+        }
+        return null;
+    }
+
+    /**
+     * 基本类型的默认值，非基本类型返回null，用于缺少值时填充
+     */
+    public static Object defaultValue(Class<?> type) {
+        return PRIMITIVE_DEFAULTS.get(type);
+    }
+
+    private static Boolean toBoolean(String s) {
+        switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "on", "yes", "1" -> {
+                return Boolean.TRUE;
+            }
+            case "false", "off", "no", "0", "" -> {
+                return Boolean.FALSE;
+            }
+            default -> throw new IllegalArgumentException("无法转换为boolean: " + s);
+        }
+    }
+
+    private static Character toCharacter(String s) {
+        if (s.length() != 1) {
+            throw new IllegalArgumentException("无法转换为char: " + s);
+        }
+        return s.charAt(0);
+    }
+}
@@ -2,7 +2,10 @@ package org.spring.entity;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.spring.factory.InjectionPlan;
 
 import java.util.List;
 
@@ -11,11 +14,24 @@ import java.util.List;
 @Data
 public class BeanDefinition {
 
-    private Object bean;
+    /**
+     * 单例实例，只有完成属性注入后才会被设置，volatile保证其他线程看到的是完整的对象
+     */
+    private volatile Object bean;
     private Class<?> beanClass;
     private String beanClassName;
     private Boolean singleton;
     private List<PropertyValue> propertyValues;
+    /**
+     * 是否延迟创建，null表示跟随上下文的默认值
+     */
+    private Boolean lazyInit;
+    /**
+     * 第一次创建bean时编译的注入计划，属性或类变化时作废
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile InjectionPlan injectionPlan;
 
     public Object getBean() {
         return bean;
@@ -31,6 +47,7 @@ public class BeanDefinition {
 
     public void setBeanClass(Class<?> beanClass) {
         this.beanClass = beanClass;
+        this.injectionPlan = null;
     }
 
     public String getBeanClassName() {
@@ -40,12 +57,17 @@ public class BeanDefinition {
     public void setBeanClassName(String beanClassName) {
         this.beanClassName = beanClassName;
         try {
-            this.beanClass = Class.forName(beanClassName);
+            setBeanClass(Class.forName(beanClassName));
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
     }
 
+    public void setPropertyValues(List<PropertyValue> propertyValues) {
+        this.propertyValues = propertyValues;
+        this.injectionPlan = null;
+    }
+
     public Boolean isSingleton() {
         return singleton;
     }
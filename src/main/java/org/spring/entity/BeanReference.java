@@ -17,6 +17,15 @@ public class BeanReference {
         this.name = name;
     }
 
+    public BeanReference(String name, boolean lazy) {
+        this.name = name;
+        this.lazy = lazy;
+    }
+
     private String name;
     private Object bean;
+    /**
+     * 注入延迟解析的代理，而不是直接创建被引用的bean
+     */
+    private boolean lazy;
 }
\ No newline at end of file
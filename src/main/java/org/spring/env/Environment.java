@@ -0,0 +1,150 @@
+package org.spring.env;
+
+import java.util.*;
+
+/**
+ * 运行环境的配置，由多层 {@link PropertySource} 组成，优先级：系统属性 &gt; 环境变量 &gt; 配置文件
+ * <p>
+ * 启动时把所有来源按优先级合并成一个不可变的Map，之后只读，查找不需要加锁。
+ * 支持 ${key} 和 ${key:默认值} 占位符，可以嵌套，比如 ${a:${b:1}}
+ */
+public class Environment {
+
+    private static final String PREFIX = "${";
+    private static final String SUFFIX = "}";
+    private static final char SEPARATOR = ':';
+
+    private final List<PropertySource> propertySources;
+
+    private final Map<String, String> properties;
+
+    /**
+     * @param propertySources 按优先级从高到低
+     */
+    public Environment(List<PropertySource> propertySources) {
+        this.propertySources = List.copyOf(propertySources);
+        Map<String, String> merged = new HashMap<>();
+        for (int i = this.propertySources.size() - 1; i >= 0; i--) {
+            merged.putAll(this.propertySources.get(i).getProperties());
+        }
+        this.properties = Map.copyOf(merged);
+    }
+
+    /**
+     * 标准环境：系统属性、环境变量，再加上classpath上的配置文件(靠前的优先，不存在的跳过)
+     */
+    public static Environment standard(String... locations) {
+        List<PropertySource> sources = new ArrayList<>();
+        sources.add(PropertySource.systemProperties());
+        sources.add(PropertySource.systemEnvironment());
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = Environment.class.getClassLoader();
+        }
+        Set<String> loaded = new LinkedHashSet<>();
+        for (String location : locations) {
+            if (location == null || location.isBlank() || !loaded.add(location.trim())) continue;
+            PropertySource source = PropertySource.classpathProperties(location.trim(), classLoader);
+            if (source != null) {
+                sources.add(source);
+            }
+        }
+        return new Environment(sources);
+    }
+
+    public List<PropertySource> getPropertySources() {
+        return propertySources;
+    }
+
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public String getProperty(String key, String defaultValue) {
+        return properties.getOrDefault(key, defaultValue);
+    }
+
+    public boolean containsProperty(String key) {
+        return properties.containsKey(key);
+    }
+
+    /**
+     * 解析文本里的占位符，找不到又没有默认值时报错
+     *
+     * @param text 文本
+     * @return 解析后的文本，没有占位符时原样返回
+     */
+    public String resolvePlaceholders(String text) {
+        if (text == null || !text.contains(PREFIX)) {
+            return text;
+        }
+        return resolve(text, new HashSet<>());
+    }
+
+    private String resolve(String text, Set<String> resolving) {
+        int start = text.indexOf(PREFIX);
+        if (start < 0) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        int pos = 0;
+        while (start >= 0) {
+            int end = findPlaceholderEnd(text, start);
+            if (end < 0) {
+                throw new IllegalArgumentException("占位符没有闭合: " + text);
+            }
+            result.append(text, pos, start);
+            String placeholder = text.substring(start + PREFIX.length(), end);
+            int separator = findSeparator(placeholder);
+            String key = resolve(separator < 0 ? placeholder : placeholder.substring(0, separator), resolving);
+            if (!resolving.add(key)) {
+                throw new IllegalArgumentException("占位符循环引用: " + key);
+            }
+            String value = properties.get(key);
+            if (value == null && separator >= 0) {
+                value = placeholder.substring(separator + 1);
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("找不到配置项: " + key);
+            }
+            result.append(resolve(value, resolving));
+            resolving.remove(key);
+            pos = end + SUFFIX.length();
+            start = text.indexOf(PREFIX, pos);
+        }
+        result.append(text, pos, text.length());
+        return result.toString();
+    }
+
+    private static int findPlaceholderEnd(String text, int start) {
+        int depth = 0;
+        for (int i = start + PREFIX.length(); i < text.length(); i++) {
+            if (text.startsWith(PREFIX, i)) {
+                depth++;
+                i++;
+            } else if (text.charAt(i) == '}') {
+                if (depth == 0) return i;
+                depth--;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 找到不在嵌套占位符里的第一个冒号
+     */
+    private static int findSeparator(String placeholder) {
+        int depth = 0;
+        for (int i = 0; i < placeholder.length(); i++) {
+            if (placeholder.startsWith(PREFIX, i)) {
+                depth++;
+                i++;
+            } else if (placeholder.charAt(i) == '}') {
+                depth--;
+            } else if (placeholder.charAt(i) == SEPARATOR && depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,83 @@
+package org.spring.env;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 一层配置来源，创建时把内容拷贝成不可变的Map
+ */
+@Slf4j
+public final class PropertySource {
+
+    private final String name;
+    private final Map<String, String> properties;
+
+    public PropertySource(String name, Map<String, String> properties) {
+        this.name = name;
+        this.properties = Map.copyOf(properties);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * JVM系统属性 -Dkey=value
+     */
+    public static PropertySource systemProperties() {
+        Map<String, String> map = new HashMap<>();
+        Properties properties = System.getProperties();
+        for (String key : properties.stringPropertyNames()) {
+            map.put(key, properties.getProperty(key));
+        }
+        return new PropertySource("systemProperties", map);
+    }
+
+    /**
+     * 环境变量，额外提供 SERVER_PORT -&gt; server.port 这种宽松写法的key
+     */
+    public static PropertySource systemEnvironment() {
+        Map<String, String> map = new HashMap<>(System.getenv());
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            map.putIfAbsent(entry.getKey().toLowerCase(Locale.ROOT).replace('_', '.'), entry.getValue());
+        }
+        return new PropertySource("systemEnvironment", map);
+    }
+
+    /**
+     * classpath上的properties文件，按UTF-8读取
+     *
+     * @return 文件不存在时返回null
+     */
+    public static PropertySource classpathProperties(String location, ClassLoader classLoader) {
+        InputStream inputStream = classLoader.getResourceAsStream(location);
+        if (inputStream == null) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.error("加载配置文件{}失败", location, e);
+            return null;
+        }
+        Map<String, String> map = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            map.put(key, properties.getProperty(key));
+        }
+        return new PropertySource(location, map);
+    }
+}
@@ -3,9 +3,14 @@ package org.spring.factory;
 
 import lombok.extern.slf4j.Slf4j;
 import org.spring.entity.BeanDefinition;
+import org.spring.env.Environment;
 
-import java.util.Map;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 工厂实现
@@ -16,7 +21,49 @@ import java.util.concurrent.ConcurrentHashMap;
 public abstract class AbstractBeanFactory implements BeanFactory {
     ConcurrentHashMap<String, BeanDefinition> beanDefinitionMap = new ConcurrentHashMap<>();
 
-    //TODO 将getBean里面只调用一个写好的doGetBean模仿Spring里面实现
+    /**
+     * 类型索引：bean的类、所有父类和接口 -> bean名字，注册时维护
+     */
+    private final ConcurrentHashMap<Class<?>, List<String>> typeIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 按类型查找的结果缓存，注册新bean时只清掉相关类型
+     */
+    private final ConcurrentHashMap<Class<?>, BeanDefinition> resolvedTypeCache = new ConcurrentHashMap<>();
+
+    /**
+     * 实例化策略
+     */
+    InstantiationStrategy instantiationStrategy = new MethodHandleInstantiationStrategy();
+
+    /**
+     * 注册时从实例化策略取出的构造器依赖：bean名或者类型，类型到刷新建依赖图时再解析
+     */
+    private final ConcurrentHashMap<String, List<Object>> constructorDependencies = new ConcurrentHashMap<>();
+
+    private volatile boolean parallelRefresh = Boolean.parseBoolean(System.getProperty("myspring.parallelRefresh", "true"));
+
+    /**
+     * 没有显式声明lazy-init的bean是否延迟创建
+     */
+    private volatile boolean defaultLazyInit = Boolean.getBoolean("myspring.lazyInit");
+
+    private volatile Map<String, Long> lastCreationTimes = Collections.emptyMap();
+
+    /**
+     * 单例的创建锁：同一个强连通分量(循环依赖)里的bean共用一把，其他bean各用一把。
+     * 创建时沿依赖方向嵌套加锁，分量之间的依赖没有环，两个线程从循环的两头同时进入也不会互相等锁。
+     * 发布后不再修改，注册新的bean定义后标记过期，下次取锁时按新的依赖图重建
+     */
+    private volatile Map<BeanDefinition, Object> creationLocks = Collections.emptyMap();
+
+    private volatile boolean creationLocksStale = true;
+
+    /**
+     * 解析@Value和XML字面量里占位符用的配置
+     */
+    private volatile Environment environment = Environment.standard();
+
     @Override
     public Object getBean(String name) throws Exception {
         BeanDefinition beanDefinition = beanDefinitionMap.get(name);
@@ -24,37 +71,234 @@ public abstract class AbstractBeanFactory implements BeanFactory {
             log.error("找不到这个Bean:{}", name);
             return null;
         }
-        //不需要单例则创建bean
-        if (!beanDefinition.isSingleton() || beanDefinition.getBean() == null) {
-            return doCreateBean(beanDefinition);
-        } else {
-            return beanDefinition.getBean();
-        }
+        return doGetBean(beanDefinition);
     }
 
     @Override
     public Object getBean(Class<?> clazz) throws Exception {
-        BeanDefinition beanDefinition = null;
-        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
-            Class<?> tmpClass = entry.getValue().getBeanClass();
-            if (tmpClass == clazz || clazz.isAssignableFrom(tmpClass)) {
-                beanDefinition = entry.getValue();
+        BeanDefinition beanDefinition = resolvedTypeCache.get(clazz);
+        if (beanDefinition == null) {
+            //和注册互斥，避免把刚失效的结果又放回缓存
+            synchronized (typeIndex) {
+                beanDefinition = resolveByType(clazz);
+                if (beanDefinition != null) {
+                    resolvedTypeCache.put(clazz, beanDefinition);
+                }
+            }
+            if (beanDefinition == null) {
+                log.error("找不到这个Bean:{}", clazz.toGenericString());
+                return null;
             }
         }
-        if (beanDefinition == null) {
-            log.error("找不到这个Bean:{}", clazz.toGenericString());
+        return doGetBean(beanDefinition);
+    }
+
+    /**
+     * 从类型索引里找唯一的候选，多个候选时优先类型完全相同的那个，否则报错
+     */
+    private BeanDefinition resolveByType(Class<?> clazz) {
+        List<String> candidates = typeIndex.get(clazz);
+        if (candidates == null || candidates.isEmpty()) {
             return null;
         }
-        if (!beanDefinition.isSingleton() || beanDefinition.getBean() == null) {
-            return doCreateBean(beanDefinition);
-        } else {
-            return beanDefinition.getBean();
+        if (candidates.size() == 1) {
+            return beanDefinitionMap.get(candidates.get(0));
+        }
+        BeanDefinition exact = null;
+        for (String candidate : candidates) {
+            BeanDefinition definition = beanDefinitionMap.get(candidate);
+            if (definition != null && definition.getBeanClass() == clazz) {
+                if (exact != null) {
+                    exact = null;
+                    break;
+                }
+                exact = definition;
+            }
         }
+        if (exact != null) {
+            return exact;
+        }
+        List<String> sorted = new ArrayList<>(candidates);
+        Collections.sort(sorted);
+        throw new IllegalStateException("类型 " + clazz.getName() + " 有多个Bean: " + sorted);
+    }
+
+    /**
+     * 单例已经创建好时只有一次volatile读，否则交给doCreateBean
+     */
+    protected Object doGetBean(BeanDefinition beanDefinition) throws Exception {
+        if (beanDefinition.isSingleton()) {
+            Object bean = beanDefinition.getBean();
+            if (bean != null) {
+                return bean;
+            }
+        }
+        return doCreateBean(beanDefinition);
     }
 
     @Override
     public void registerBeanDefinition(String name, BeanDefinition beanDefinition) {
-        beanDefinitionMap.put(name, beanDefinition);
+        synchronized (typeIndex) {
+            BeanDefinition old = beanDefinitionMap.put(name, beanDefinition);
+            if (old != null && old.getBeanClass() != null) {
+                indexType(old.getBeanClass(), name, false);
+            }
+            if (beanDefinition.getBeanClass() != null) {
+                indexType(beanDefinition.getBeanClass(), name, true);
+            }
+            updateConstructorDependencies(name, beanDefinition);
+            creationLocksStale = true;
+        }
+    }
+
+    /**
+     * 创建单例时要持有的锁
+     */
+    Object getCreationLock(BeanDefinition beanDefinition) {
+        Object lock = creationLocksStale ? null : creationLocks.get(beanDefinition);
+        if (lock == null) {
+            synchronized (typeIndex) {
+                if (creationLocksStale || !creationLocks.containsKey(beanDefinition)) {
+                    updateCreationLocks(new BeanDependencyGraph(beanDefinitionMap, resolveConstructorDependencies()));
+                }
+                lock = creationLocks.get(beanDefinition);
+            }
+        }
+        //没有注册到工厂的定义只锁它自己
+        return lock != null ? lock : beanDefinition;
+    }
+
+    /**
+     * 按依赖图的分量分配创建锁，调用方持有typeIndex的锁。
+     * 分量里已有的bean原来用的是同一把锁时沿用，正在创建的线程和之后的线程仍然互斥
+     */
+    private void updateCreationLocks(BeanDependencyGraph graph) {
+        Map<BeanDefinition, Object> previous = creationLocks;
+        Map<BeanDefinition, Object> locks = new IdentityHashMap<>();
+        for (List<String> component : graph.components()) {
+            Object lock = null;
+            boolean shared = true;
+            for (String name : component) {
+                Object old = previous.get(beanDefinitionMap.get(name));
+                if (old != null && lock != null && old != lock) {
+                    shared = false;
+                }
+                if (lock == null) {
+                    lock = old;
+                }
+            }
+            if (lock == null || !shared) {
+                lock = new Object();
+            }
+            for (String name : component) {
+                locks.put(beanDefinitionMap.get(name), lock);
+            }
+        }
+        creationLocks = Collections.unmodifiableMap(locks);
+        creationLocksStale = false;
+    }
+
+    private void updateConstructorDependencies(String name, BeanDefinition beanDefinition) {
+        List<Object> dependencies = beanDefinition.getBeanClass() == null ? Collections.emptyList()
+                : instantiationStrategy.getConstructorDependencies(beanDefinition.getBeanClass());
+        if (dependencies.isEmpty()) {
+            constructorDependencies.remove(name);
+        } else {
+            constructorDependencies.put(name, dependencies);
+        }
+    }
+
+    /**
+     * 把构造器依赖解析成bean名。按类型的依赖解析规则和getBean(Class)一致，
+     * 有歧义时连上所有候选，创建时再报错
+     */
+    private Map<String, List<String>> resolveConstructorDependencies() {
+        Map<String, List<String>> resolved = new HashMap<>();
+        for (Map.Entry<String, List<Object>> entry : constructorDependencies.entrySet()) {
+            List<String> names = new ArrayList<>();
+            for (Object dependency : entry.getValue()) {
+                if (dependency instanceof String name) {
+                    names.add(name);
+                } else {
+                    Class<?> type = (Class<?>) dependency;
+                    try {
+                        String name = nameOf(resolveByType(type), type);
+                        if (name != null) {
+                            names.add(name);
+                        }
+                    } catch (IllegalStateException e) {
+                        names.addAll(getBeanNamesForType(type));
+                    }
+                }
+            }
+            resolved.put(entry.getKey(), names);
+        }
+        return resolved;
+    }
+
+    private String nameOf(BeanDefinition definition, Class<?> type) {
+        if (definition == null) {
+            return null;
+        }
+        for (String candidate : getBeanNamesForType(type)) {
+            if (beanDefinitionMap.get(candidate) == definition) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> getBeanNamesForAnnotation(Class<? extends Annotation> annotationType) {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            Class<?> beanClass = entry.getValue().getBeanClass();
+            if (beanClass != null && beanClass.isAnnotationPresent(annotationType)) {
+                names.add(entry.getKey());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Override
+    public List<String> getBeanNamesForType(Class<?> type) {
+        List<String> names = typeIndex.get(type);
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * 把bean名字加入(或移出)它的类、所有父类和接口的索引，并让这些类型的查找缓存失效
+     */
+    private void indexType(Class<?> beanClass, String name, boolean add) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(beanClass, types);
+        for (Class<?> type : types) {
+            typeIndex.compute(type, (key, names) -> {
+                List<String> updated = names == null ? new ArrayList<>() : new ArrayList<>(names);
+                updated.remove(name);
+                if (add) {
+                    updated.add(name);
+                }
+                return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+            });
+            resolvedTypeCache.remove(type);
+        }
+    }
+
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        if (type == null || !types.add(type)) {
+            return;
+        }
+        collectTypes(type.getSuperclass(), types);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectTypes(anInterface, types);
+        }
     }
 
     /**
@@ -67,12 +311,131 @@ public abstract class AbstractBeanFactory implements BeanFactory {
     abstract Object doCreateBean(BeanDefinition beanDefinition) throws Exception;
 
     /**
-     * 批量创建bean
+     * 批量创建启动时就需要的单例，原型和延迟创建的单例留到第一次使用
+     * 默认按依赖图并行创建，互不依赖的bean同时创建，循环依赖的bean放在同一个任务里串行创建
      * @throws Exception
      */
     public void populateBeans() throws Exception {
-        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
-            doCreateBean(entry.getValue());
+        long start = System.nanoTime();
+        Map<String, Long> creationTimes = new ConcurrentHashMap<>();
+        BeanDependencyGraph graph;
+        synchronized (typeIndex) {
+            graph = new BeanDependencyGraph(beanDefinitionMap, resolveConstructorDependencies());
+            updateCreationLocks(graph);
+        }
+        for (List<String> cycle : graph.cycles()) {
+            log.warn("发现循环依赖: {}", cycle);
+        }
+        boolean parallel = parallelRefresh && graph.components().size() > 1;
+        if (parallel) {
+            populateBeansInParallel(graph, creationTimes);
+        } else {
+            for (List<String> component : graph.components()) {
+                createComponent(component, creationTimes);
+            }
+        }
+        report(creationTimes, System.nanoTime() - start, parallel);
+    }
+
+    private void populateBeansInParallel(BeanDependencyGraph graph, Map<String, Long> creationTimes) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+            //分量已经按依赖在前排好，依赖的future一定先建好
+            for (List<String> component : graph.components()) {
+                Set<CompletableFuture<Void>> dependencies = new HashSet<>();
+                for (String name : component) {
+                    for (String dependency : graph.dependenciesOf(name)) {
+                        CompletableFuture<Void> future = futures.get(dependency);
+                        if (future != null) {
+                            dependencies.add(future);
+                        }
+                    }
+                }
+                CompletableFuture<Void> future = CompletableFuture
+                        .allOf(dependencies.toArray(new CompletableFuture[0]))
+                        .thenRunAsync(() -> {
+                            try {
+                                createComponent(component, creationTimes);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }, pool);
+                for (String name : component) {
+                    futures.put(name, future);
+                }
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void createComponent(List<String> component, Map<String, Long> creationTimes) throws Exception {
+        for (String name : component) {
+            BeanDefinition beanDefinition = beanDefinitionMap.get(name);
+            if (!beanDefinition.isSingleton() || isLazyInit(beanDefinition)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            doCreateBean(beanDefinition);
+            creationTimes.put(name, System.nanoTime() - start);
         }
     }
+
+    private void report(Map<String, Long> creationTimes, long total, boolean parallel) {
+        lastCreationTimes = Collections.unmodifiableMap(new HashMap<>(creationTimes));
+        log.info("创建{}个bean完成，{}，耗时{}ms", creationTimes.size(), parallel ? "并行" : "串行", total / 1_000_000);
+        if (log.isDebugEnabled()) {
+            creationTimes.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(entry -> log.debug("  {} {}us", entry.getKey(), entry.getValue() / 1000));
+        }
+    }
+
+    public void setInstantiationStrategy(InstantiationStrategy instantiationStrategy) {
+        synchronized (typeIndex) {
+            this.instantiationStrategy = instantiationStrategy;
+            beanDefinitionMap.forEach(this::updateConstructorDependencies);
+            creationLocksStale = true;
+        }
+    }
+
+    /**
+     * 是否并行创建bean，可以用 -Dmyspring.parallelRefresh=false 关闭
+     */
+    public void setParallelRefresh(boolean parallelRefresh) {
+        this.parallelRefresh = parallelRefresh;
+    }
+
+    boolean isLazyInit(BeanDefinition beanDefinition) {
+        Boolean lazyInit = beanDefinition.getLazyInit();
+        return lazyInit != null ? lazyInit : defaultLazyInit;
+    }
+
+    /**
+     * 上下文默认是否延迟创建单例，可以用 -Dmyspring.lazyInit=true 打开
+     */
+    public void setDefaultLazyInit(boolean defaultLazyInit) {
+        this.defaultLazyInit = defaultLazyInit;
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * 最近一次批量创建时每个bean的创建耗时(纳秒)
+     */
+    public Map<String, Long> getLastCreationTimes() {
+        return lastCreationTimes;
+    }
 }
\ No newline at end of file
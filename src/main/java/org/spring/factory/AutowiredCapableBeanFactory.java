@@ -3,10 +3,14 @@ package org.spring.factory;
 
 import lombok.extern.slf4j.Slf4j;
 import org.spring.entity.BeanDefinition;
-import org.spring.entity.BeanReference;
-import org.spring.entity.PropertyValue;
 
-import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 工厂实现类
@@ -14,8 +18,15 @@ import java.lang.reflect.Field;
 @Slf4j
 public class AutowiredCapableBeanFactory extends AbstractBeanFactory {
 
+    /**
+     * bean的创建状态：提前引用和每个线程的创建路径
+     */
+    private final BeanCreationTracker creationTracker = new BeanCreationTracker();
+
     /**
      * 创建Bean
+     * 线程第一次进入时先用显式栈把引用到的单例按依赖在前的顺序建好，
+     * 之后注入时引用的单例基本都已存在，依赖链再长递归深度也不会跟着变深
      *
      * @param beanDefinition Bean定义对象
      * @return beanDefinition
@@ -23,16 +34,87 @@ public class AutowiredCapableBeanFactory extends AbstractBeanFactory {
      */
     @Override
     Object doCreateBean(BeanDefinition beanDefinition) throws Exception {
-        //单例且存在直接返回
-        if (beanDefinition.isSingleton() && beanDefinition.getBean() != null) {
-            return beanDefinition.getBean();
+        if (creationTracker.isIdle()) {
+            createDependenciesFirst(beanDefinition);
+        }
+        return createBean(beanDefinition);
+    }
+
+    /**
+     * 单例在创建锁里创建，保证并发第一次获取时只创建一次，并且要等属性注入完成后才发布给其他线程。
+     * 循环依赖的bean共用一把锁(见 {@link #getCreationLock})，否则两个线程分别从A和B进入时会各自持有一把锁互相等待
+     */
+    private Object createBean(BeanDefinition beanDefinition) throws Exception {
+        if (!beanDefinition.isSingleton()) {
+            creationTracker.beforeCreation(beanDefinition, this::nameOf);
+            try {
+                Object bean = instantiationStrategy.instantiate(beanDefinition, this);
+                applyPropertyValues(bean, beanDefinition);
+                return bean;
+            } finally {
+                creationTracker.afterCreation(beanDefinition);
+            }
         }
-        Object bean = beanDefinition.getBeanClass().newInstance();
-        if (beanDefinition.isSingleton()) {
+        synchronized (getCreationLock(beanDefinition)) {
+            //单例且存在直接返回
+            Object bean = beanDefinition.getBean();
+            if (bean != null) {
+                return bean;
+            }
+            //同一线程在注入过程中又回到了这个单例，返回提前引用
+            Object early = creationTracker.getEarlySingleton(beanDefinition);
+            if (early != null) {
+                return early;
+            }
+            //还没实例化就又回来了(构造器循环)，这里会报错
+            creationTracker.beforeCreation(beanDefinition, this::nameOf);
+            try {
+                bean = instantiationStrategy.instantiate(beanDefinition, this);
+                creationTracker.addEarlySingleton(beanDefinition, bean);
+                applyPropertyValues(bean, beanDefinition);
+            } finally {
+                creationTracker.removeEarlySingleton(beanDefinition);
+                creationTracker.afterCreation(beanDefinition);
+            }
             beanDefinition.setBean(bean);
+            return bean;
+        }
+    }
+
+    /**
+     * 非递归的后序遍历，把root引用到的、还没创建的单例依赖在前地创建出来
+     * 原型只往下走不创建，遍历路径上的回边(循环)跳过，交给提前引用处理
+     */
+    private void createDependenciesFirst(BeanDefinition root) throws Exception {
+        Set<BeanDefinition> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Frame> stack = new ArrayDeque<>();
+        visited.add(root);
+        stack.push(new Frame(root, getInjectionPlan(root).dependencies(this)));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.next < frame.dependencies.size()) {
+                BeanDefinition dependency = frame.dependencies.get(frame.next++);
+                if (dependency.getBean() == null && visited.add(dependency)) {
+                    stack.push(new Frame(dependency, getInjectionPlan(dependency).dependencies(this)));
+                }
+                continue;
+            }
+            stack.pop();
+            if (frame.beanDefinition != root && frame.beanDefinition.isSingleton()) {
+                createBean(frame.beanDefinition);
+            }
+        }
+    }
+
+    private static final class Frame {
+        private final BeanDefinition beanDefinition;
+        private final List<BeanDefinition> dependencies;
+        private int next;
+
+        Frame(BeanDefinition beanDefinition, List<BeanDefinition> dependencies) {
+            this.beanDefinition = beanDefinition;
+            this.dependencies = dependencies;
         }
-        applyPropertyValues(bean, beanDefinition);
-        return bean;
     }
 
     /**
@@ -43,19 +125,28 @@ public class AutowiredCapableBeanFactory extends AbstractBeanFactory {
      * @throws Exception 反射异常
      */
     void applyPropertyValues(Object bean, BeanDefinition beanDefinition) throws Exception {
-        for (PropertyValue propertyValue : beanDefinition.getPropertyValues()) {
-            Field field = bean.getClass().getDeclaredField(propertyValue.getName());
-            Object value = propertyValue.getValue();
-            log.debug("注入属性:{}", value);
-            if (value instanceof BeanReference) {
-                BeanReference beanReference = (BeanReference) propertyValue.getValue();
-                BeanDefinition refDefinition = beanDefinitionMap.get(beanReference.getName());
-                if (refDefinition.getBean() == null) {
-                    value = doCreateBean(refDefinition);
-                }
+        getInjectionPlan(beanDefinition).inject(bean, this);
+    }
+
+    private InjectionPlan getInjectionPlan(BeanDefinition beanDefinition) throws Exception {
+        InjectionPlan plan = beanDefinition.getInjectionPlan();
+        if (plan == null) {
+            plan = InjectionPlan.compile(beanDefinition, beanDefinitionMap, getEnvironment());
+            beanDefinition.setInjectionPlan(plan);
+            log.debug("编译注入计划:{}", beanDefinition.getBeanClassName());
+        }
+        return plan;
+    }
+
+    /**
+     * 报错时用，按引用找bean名
+     */
+    private String nameOf(BeanDefinition beanDefinition) {
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            if (entry.getValue() == beanDefinition) {
+                return entry.getKey();
             }
-            field.setAccessible(true);
-            field.set(bean, value);
         }
+        return beanDefinition.getBeanClassName();
     }
-}
\ No newline at end of file
+}
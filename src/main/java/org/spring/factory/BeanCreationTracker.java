@@ -0,0 +1,86 @@
+package org.spring.factory;
+
+import org.spring.entity.BeanDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 记录bean的创建状态，相当于三级缓存里后两级加上正在创建的集合
+ * <p>
+ * 一级：BeanDefinition里完成注入的单例；
+ * 二级：已经实例化、还在注入属性的单例的提前引用，循环引用回来时返回它；
+ * 没有代理包装bean，所以不需要第三级的ObjectFactory，实例化后直接放进提前引用。
+ * 每个线程还记录自己的创建路径，同一个BeanDefinition在路径上出现两次又拿不到提前引用
+ * (原型循环、构造器循环)时直接报错并给出完整的循环路径，而不是一直递归到栈溢出
+ */
+final class BeanCreationTracker {
+
+    /**
+     * 当前线程正在创建的bean，按进入的先后顺序
+     */
+    private final ThreadLocal<List<BeanDefinition>> creationPath = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * 正在注入属性的单例，key是BeanDefinition本身(按引用比较)
+     * 只有持有该bean创建锁的线程会读写自己的那一项
+     */
+    private final Map<BeanDefinition, Object> earlySingletonObjects = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * 当前线程是否没有在创建任何bean
+     */
+    boolean isIdle() {
+        return creationPath.get().isEmpty();
+    }
+
+    /**
+     * 进入创建，已经在当前线程的创建路径上时报错
+     *
+     * @param nameResolver 报错时用来把BeanDefinition换成名字
+     */
+    void beforeCreation(BeanDefinition beanDefinition, Function<BeanDefinition, String> nameResolver) {
+        List<BeanDefinition> path = creationPath.get();
+        for (int i = 0; i < path.size(); i++) {
+            if (path.get(i) == beanDefinition) {
+                StringBuilder cycle = new StringBuilder();
+                for (int j = i; j < path.size(); j++) {
+                    cycle.append(nameResolver.apply(path.get(j))).append(" -> ");
+                }
+                cycle.append(nameResolver.apply(beanDefinition));
+                throw new IllegalStateException("无法解析的循环依赖: " + cycle);
+            }
+        }
+        path.add(beanDefinition);
+    }
+
+    void afterCreation(BeanDefinition beanDefinition) {
+        List<BeanDefinition> path = creationPath.get();
+        //总是最后一个，倒着找
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (path.get(i) == beanDefinition) {
+                path.remove(i);
+                break;
+            }
+        }
+        if (path.isEmpty()) {
+            creationPath.remove();
+        }
+    }
+
+    Object getEarlySingleton(BeanDefinition beanDefinition) {
+        return earlySingletonObjects.get(beanDefinition);
+    }
+
+    void addEarlySingleton(BeanDefinition beanDefinition, Object bean) {
+        earlySingletonObjects.put(beanDefinition, bean);
+    }
+
+    void removeEarlySingleton(BeanDefinition beanDefinition) {
+        earlySingletonObjects.remove(beanDefinition);
+    }
+}
@@ -0,0 +1,131 @@
+package org.spring.factory;
+
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.BeanReference;
+import org.spring.entity.PropertyValue;
+
+import java.util.*;
+
+/**
+ * bean之间的依赖图，边来自PropertyValue里的BeanReference和构造器参数(按名字或者按类型)
+ * 用Tarjan算法求强连通分量，分量按依赖在前的顺序排列，
+ * 大小大于1(或者自己引用自己)的分量就是循环依赖
+ */
+class BeanDependencyGraph {
+
+    private final List<String> names;
+    private final Map<String, List<String>> dependencies = new HashMap<>();
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private final Map<String, Integer> lowLink = new HashMap<>();
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Set<String> onStack = new HashSet<>();
+    private final List<List<String>> components = new ArrayList<>();
+    private int counter;
+
+    /**
+     * @param constructorDependencies 每个bean构造器参数解析出的bean名，没有的可以不放
+     */
+    BeanDependencyGraph(Map<String, BeanDefinition> beanDefinitions, Map<String, List<String>> constructorDependencies) {
+        //排序保证每次启动的顺序一致
+        this.names = new ArrayList<>(new TreeSet<>(beanDefinitions.keySet()));
+        for (String name : names) {
+            //构造器循环没法用提前引用解开，必须进同一个分量串行创建，由BeanCreationTracker报错，而不是两个线程互相等锁
+            List<String> refs = new ArrayList<>();
+            for (String dependency : constructorDependencies.getOrDefault(name, Collections.emptyList())) {
+                if (beanDefinitions.containsKey(dependency)) {
+                    refs.add(dependency);
+                }
+            }
+            List<PropertyValue> propertyValues = beanDefinitions.get(name).getPropertyValues();
+            if (propertyValues != null) {
+                for (PropertyValue propertyValue : propertyValues) {
+                    //延迟引用注入的是代理，不构成创建顺序上的依赖
+                    if (propertyValue.getValue() instanceof BeanReference reference && !reference.isLazy()
+                            && beanDefinitions.containsKey(reference.getName())) {
+                        refs.add(reference.getName());
+                    }
+                }
+            }
+            dependencies.put(name, refs);
+        }
+        for (String name : names) {
+            if (!index.containsKey(name)) {
+                strongConnect(name);
+            }
+        }
+    }
+
+    /**
+     * 强连通分量，依赖总是排在依赖它的分量前面
+     */
+    List<List<String>> components() {
+        return components;
+    }
+
+    List<String> dependenciesOf(String name) {
+        return dependencies.get(name);
+    }
+
+    /**
+     * 循环依赖的分量
+     */
+    List<List<String>> cycles() {
+        List<List<String>> cycles = new ArrayList<>();
+        for (List<String> component : components) {
+            if (component.size() > 1 || dependencies.get(component.get(0)).contains(component.get(0))) {
+                cycles.add(component);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * 非递归的Tarjan，work里每一帧是(节点, 下一个要看的依赖下标)，依赖链很长时也不会栈溢出
+     */
+    private void strongConnect(String root) {
+        Deque<Object[]> work = new ArrayDeque<>();
+        visit(root);
+        work.push(new Object[]{root, 0});
+        while (!work.isEmpty()) {
+            Object[] frame = work.peek();
+            String name = (String) frame[0];
+            int next = (Integer) frame[1];
+            List<String> refs = dependencies.get(name);
+            if (next < refs.size()) {
+                frame[1] = next + 1;
+                String dependency = refs.get(next);
+                if (!index.containsKey(dependency)) {
+                    visit(dependency);
+                    work.push(new Object[]{dependency, 0});
+                } else if (onStack.contains(dependency)) {
+                    lowLink.put(name, Math.min(lowLink.get(name), index.get(dependency)));
+                }
+                continue;
+            }
+            work.pop();
+            if (lowLink.get(name).equals(index.get(name))) {
+                List<String> component = new ArrayList<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(name));
+                components.add(component);
+            }
+            if (!work.isEmpty()) {
+                String parent = (String) work.peek()[0];
+                lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(name)));
+            }
+        }
+    }
+
+    private void visit(String name) {
+        index.put(name, counter);
+        lowLink.put(name, counter);
+        counter++;
+        stack.push(name);
+        onStack.add(name);
+    }
+}
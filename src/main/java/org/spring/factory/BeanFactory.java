@@ -3,6 +3,9 @@ package org.spring.factory;
 
 import org.spring.entity.BeanDefinition;
 
+import java.lang.annotation.Annotation;
+import java.util.List;
+
 /**
  * Bean工厂接口
  *
@@ -14,4 +17,14 @@ public interface BeanFactory {
     Object getBean(Class<?> clazz) throws Exception;
     void registerBeanDefinition(String name, BeanDefinition beanDefinition) throws Exception;
 
+    /**
+     * 类上带有某个注解的所有bean名字，按名字排序
+     */
+    List<String> getBeanNamesForAnnotation(Class<? extends Annotation> annotationType);
+
+    /**
+     * 类型是给定类型(或者它的子类、实现类)的所有bean名字，按名字排序
+     */
+    List<String> getBeanNamesForType(Class<?> type);
+
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package org.spring.factory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spring.convert.ConversionService;
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.BeanReference;
+import org.spring.entity.PropertyValue;
+import org.spring.env.Environment;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个BeanDefinition的属性注入计划，第一次创建bean时编译，之后每次创建直接按数组写字段
+ * <p>
+ * 字段解析成 (Object,Object)void 形状的setter句柄，字面量提前解析占位符并用ConversionService转换成字段类型，
+ * 引用提前找到目标BeanDefinition，注入时只剩获取引用bean和一次invokeExact
+ * 延迟引用注入一个接口代理，第一次调用时才创建被引用的bean
+ */
+@Slf4j
+public final class InjectionPlan {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String[] names;
+    private final MethodHandle[] setters;
+    /**
+     * 字面量是转换好的值，引用是被引用的bean名
+     */
+    private final Object[] values;
+    /**
+     * 引用提前解析到的BeanDefinition，字面量为null
+     */
+    private final BeanDefinition[] references;
+    private final boolean[] isReference;
+    private final boolean[] copyOnInject;
+    /**
+     * 延迟引用注入的代理接口，不是延迟引用时为null
+     */
+    private final Class<?>[] lazyTypes;
+
+    private InjectionPlan(int size) {
+        this.names = new String[size];
+        this.setters = new MethodHandle[size];
+        this.values = new Object[size];
+        this.references = new BeanDefinition[size];
+        this.isReference = new boolean[size];
+        this.copyOnInject = new boolean[size];
+        this.lazyTypes = new Class<?>[size];
+    }
+
+    /**
+     * 编译注入计划
+     *
+     * @param beanDefinition  bean定义
+     * @param beanDefinitions 所有bean定义，用来解析引用
+     * @param environment     解析字面量里的占位符
+     */
+    static InjectionPlan compile(BeanDefinition beanDefinition, Map<String, BeanDefinition> beanDefinitions, Environment environment) throws Exception {
+        List<PropertyValue> propertyValues = beanDefinition.getPropertyValues();
+        int size = propertyValues == null ? 0 : propertyValues.size();
+        InjectionPlan plan = new InjectionPlan(size);
+        Class<?> beanClass = beanDefinition.getBeanClass();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(beanClass, MethodHandles.lookup());
+        for (int i = 0; i < size; i++) {
+            PropertyValue propertyValue = propertyValues.get(i);
+            Field field = findField(beanClass, propertyValue.getName());
+            plan.names[i] = propertyValue.getName();
+            plan.setters[i] = MethodHandles.privateLookupIn(field.getDeclaringClass(), lookup)
+                    .unreflectSetter(field)
+                    .asType(SETTER_TYPE);
+            Object value = propertyValue.getValue();
+            if (value instanceof BeanReference beanReference) {
+                plan.isReference[i] = true;
+                plan.values[i] = beanReference.getName();
+                plan.references[i] = beanDefinitions.get(beanReference.getName());
+                if (beanReference.isLazy()) {
+                    if (field.getType().isInterface()) {
+                        plan.lazyTypes[i] = field.getType();
+                    } else {
+                        log.warn("字段 {} 的类型不是接口，无法使用延迟代理，改为直接注入", field);
+                    }
+                }
+            } else {
+                if (value instanceof String text) {
+                    value = environment.resolvePlaceholders(text);
+                }
+                plan.values[i] = convertLiteral(field, value);
+                plan.copyOnInject[i] = plan.values[i] != null && plan.values[i].getClass().isArray();
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 按计划给bean注入属性
+     */
+    void inject(Object bean, AbstractBeanFactory beanFactory) throws Exception {
+        for (int i = 0; i < setters.length; i++) {
+            Object value = values[i];
+            if (lazyTypes[i] != null) {
+                value = LazyResolutionProxy.create(lazyTypes[i], beanFactory, (String) value, references[i]);
+            } else if (isReference[i]) {
+                BeanDefinition reference = references[i];
+                if (reference == null) {
+                    //编译时还没注册的引用，每次按名字找
+                    reference = beanFactory.beanDefinitionMap.get((String) value);
+                    if (reference == null) {
+                        throw new IllegalStateException("属性 " + names[i] + " 引用的Bean不存在: " + value);
+                    }
+                }
+                value = beanFactory.doGetBean(reference);
+            } else if (copyOnInject[i]) {
+                value = copyArray(value);
+            }
+            try {
+                setters[i].invokeExact(bean, value);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /**
+     * 计划里注入时就要创建的bean定义，还没注册的引用和延迟引用跳过
+     */
+    List<BeanDefinition> dependencies(AbstractBeanFactory beanFactory) {
+        List<BeanDefinition> dependencies = new ArrayList<>();
+        for (int i = 0; i < setters.length; i++) {
+            if (!isReference[i] || lazyTypes[i] != null) continue;
+            BeanDefinition reference = references[i] != null ? references[i] : beanFactory.beanDefinitionMap.get((String) values[i]);
+            if (reference != null) {
+                dependencies.add(reference);
+            }
+        }
+        return dependencies;
+    }
+
+    private static Field findField(Class<?> beanClass, String name) throws NoSuchFieldException {
+        for (Class<?> type = beanClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                return type.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+                //继续找父类
+            }
+        }
+        throw new NoSuchFieldException(beanClass.getName() + "." + name);
+    }
+
+    private static Object convertLiteral(Field field, Object value) {
+        if (value == null) {
+            return null;
+        }
+        ConversionService conversionService = ConversionService.getSharedInstance();
+        if (!conversionService.canConvert(value.getClass(), field.getGenericType())) {
+            throw new IllegalArgumentException("字段 " + field + " 的类型不支持从 " + value.getClass().getName() + " 转换");
+        }
+        return conversionService.convert(value, field.getGenericType());
+    }
+
+    /**
+     * 数组是可变的，每个实例拿一份拷贝
+     */
+    private static Object copyArray(Object array) {
+        int length = Array.getLength(array);
+        Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+}
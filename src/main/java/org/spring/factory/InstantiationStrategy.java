@@ -0,0 +1,35 @@
+package org.spring.factory;
+
+import org.spring.entity.BeanDefinition;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * bean实例化策略
+ *
+ * @author Wu
+ */
+public interface InstantiationStrategy {
+
+    /**
+     * 创建一个还没有注入属性的实例
+     *
+     * @param beanDefinition bean定义
+     * @param beanFactory    用来解析构造器参数
+     * @return 新实例
+     * @throws Exception 构造器抛出的异常
+     */
+    Object instantiate(BeanDefinition beanDefinition, AbstractBeanFactory beanFactory) throws Exception;
+
+    /**
+     * 实例化时要从工厂取的其他bean，注册时调用，用来在依赖图里加上构造器依赖
+     *
+     * @param beanClass bean的类
+     * @return bean名(String)或者按类型查找的类型(Class)
+     */
+    default List<Object> getConstructorDependencies(Class<?> beanClass) {
+        return Collections.emptyList();
+    }
+
+}
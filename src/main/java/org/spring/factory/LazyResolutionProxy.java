@@ -0,0 +1,55 @@
+package org.spring.factory;
+
+import org.spring.entity.BeanDefinition;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * 延迟解析的引用，注入时不创建被引用的bean，每次调用方法时再通过工厂获取
+ * 单例获取只是一次volatile读；原型每次调用拿到新实例，和直接getBean一致
+ */
+final class LazyResolutionProxy implements InvocationHandler {
+
+    private final AbstractBeanFactory beanFactory;
+    private final String beanName;
+    /**
+     * 编译时已经注册的引用，为null时每次按名字找
+     */
+    private final BeanDefinition reference;
+
+    private LazyResolutionProxy(AbstractBeanFactory beanFactory, String beanName, BeanDefinition reference) {
+        this.beanFactory = beanFactory;
+        this.beanName = beanName;
+        this.reference = reference;
+    }
+
+    static Object create(Class<?> type, AbstractBeanFactory beanFactory, String beanName, BeanDefinition reference) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new LazyResolutionProxy(beanFactory, beanName, reference));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class && "toString".equals(method.getName()) && reference != null
+                && reference.getBean() == null) {
+            //打印日志不应该触发创建
+            return "LazyResolutionProxy(" + beanName + ")";
+        }
+        try {
+            return method.invoke(resolve(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object resolve() throws Exception {
+        BeanDefinition target = reference != null ? reference : beanFactory.beanDefinitionMap.get(beanName);
+        if (target == null) {
+            throw new IllegalStateException("延迟引用的Bean不存在: " + beanName);
+        }
+        return beanFactory.doGetBean(target);
+    }
+}
@@ -0,0 +1,214 @@
+package org.spring.factory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spring.annotation.Autowired;
+import org.spring.annotation.Qualifier;
+import org.spring.annotation.Value;
+import org.spring.convert.ConversionService;
+import org.spring.convert.Converter;
+import org.spring.entity.BeanDefinition;
+import org.spring.env.Environment;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 默认的实例化策略，每个类第一次实例化时编译一次，之后按类缓存
+ * <p>
+ * 构造器选择：唯一的@Autowired构造器 &gt; 无参构造器 &gt; 唯一的构造器。
+ * 无参且public的构造器用LambdaMetafactory生成Supplier，接近直接new的速度；
+ * 其他情况用构造器的MethodHandle。
+ * 构造器参数：@Value字面量 &gt; @Qualifier指定的bean名 &gt; 按类型找bean
+ */
+@Slf4j
+public class MethodHandleInstantiationStrategy implements InstantiationStrategy {
+
+    private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Supplier.class);
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final int ARG_LITERAL = 0;
+    private static final int ARG_BEAN_NAME = 1;
+    private static final int ARG_BEAN_TYPE = 2;
+
+    private final ConcurrentHashMap<Class<?>, Instantiator> instantiators = new ConcurrentHashMap<>();
+
+    @Override
+    public Object instantiate(BeanDefinition beanDefinition, AbstractBeanFactory beanFactory) throws Exception {
+        Class<?> beanClass = beanDefinition.getBeanClass();
+        Instantiator instantiator = instantiators.get(beanClass);
+        if (instantiator == null) {
+            instantiator = compile(beanClass, beanFactory.getEnvironment());
+            instantiators.putIfAbsent(beanClass, instantiator);
+        }
+        return instantiator.newInstance(beanFactory);
+    }
+
+    /**
+     * 和compile选同一个构造器，@Value参数不是bean，不算依赖
+     */
+    @Override
+    public List<Object> getConstructorDependencies(Class<?> beanClass) {
+        Constructor<?> constructor;
+        try {
+            constructor = chooseConstructor(beanClass);
+        } catch (NoSuchMethodException | IllegalStateException e) {
+            //选不出构造器的话创建时会报错，这里不管
+            return Collections.emptyList();
+        }
+        List<Object> dependencies = new ArrayList<>(constructor.getParameterCount());
+        for (Parameter parameter : constructor.getParameters()) {
+            if (parameter.isAnnotationPresent(Value.class)) {
+                continue;
+            }
+            dependencies.add(parameter.isAnnotationPresent(Qualifier.class)
+                    ? parameter.getAnnotation(Qualifier.class).value() : parameter.getType());
+        }
+        return dependencies;
+    }
+
+    private Instantiator compile(Class<?> beanClass, Environment environment) throws Exception {
+        Constructor<?> constructor = chooseConstructor(beanClass);
+        if (constructor.getParameterCount() == 0) {
+            if (Modifier.isPublic(beanClass.getModifiers()) && Modifier.isPublic(constructor.getModifiers())) {
+                try {
+                    return new SupplierInstantiator(generateSupplier(constructor));
+                } catch (Throwable t) {
+                    log.debug("{} 无法生成Supplier，使用MethodHandle: {}", beanClass.getName(), t.toString());
+                }
+            }
+            return new HandleInstantiator(constructorHandle(constructor).asType(MethodType.methodType(Object.class)), new Object[0], new int[0]);
+        }
+        Parameter[] parameters = constructor.getParameters();
+        Object[] keys = new Object[parameters.length];
+        int[] kinds = new int[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            if (parameter.isAnnotationPresent(Value.class)) {
+                Converter<String, Object> converter = ConversionService.getSharedInstance().getConverter(String.class, parameter.getParameterizedType());
+                if (converter == null) {
+                    throw new IllegalArgumentException(constructor + " 的参数 " + parameter + " 类型不支持从字符串转换");
+                }
+                keys[i] = converter.convert(environment.resolvePlaceholders(parameter.getAnnotation(Value.class).value()));
+                kinds[i] = ARG_LITERAL;
+            } else if (parameter.isAnnotationPresent(Qualifier.class)) {
+                keys[i] = parameter.getAnnotation(Qualifier.class).value();
+                kinds[i] = ARG_BEAN_NAME;
+            } else {
+                keys[i] = parameter.getType();
+                kinds[i] = ARG_BEAN_TYPE;
+            }
+        }
+        return new HandleInstantiator(constructorHandle(constructor).asSpreader(Object[].class, parameters.length).asType(SPREAD_TYPE),
+                keys, kinds);
+    }
+
+    private static Constructor<?> chooseConstructor(Class<?> beanClass) throws NoSuchMethodException {
+        Constructor<?>[] constructors = beanClass.getDeclaredConstructors();
+        Constructor<?> autowired = null;
+        Constructor<?> noArgs = null;
+        for (Constructor<?> constructor : constructors) {
+            if (constructor.isAnnotationPresent(Autowired.class)) {
+                if (autowired != null) {
+                    throw new IllegalStateException(beanClass.getName() + " 有多个@Autowired构造器");
+                }
+                autowired = constructor;
+            }
+            if (constructor.getParameterCount() == 0) {
+                noArgs = constructor;
+            }
+        }
+        if (autowired != null) return autowired;
+        if (noArgs != null) return noArgs;
+        if (constructors.length == 1) return constructors[0];
+        throw new NoSuchMethodException(beanClass.getName() + " 没有无参构造器，也没有@Autowired构造器");
+    }
+
+    private static MethodHandle constructorHandle(Constructor<?> constructor) throws IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(constructor.getDeclaringClass(), MethodHandles.lookup());
+        return lookup.unreflectConstructor(constructor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> generateSupplier(Constructor<?> constructor) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflectConstructor(constructor);
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", SUPPLIER_TYPE,
+                MethodType.methodType(Object.class), handle, MethodType.methodType(constructor.getDeclaringClass()));
+        return (Supplier<Object>) callSite.getTarget().invokeExact();
+    }
+
+    private interface Instantiator {
+        Object newInstance(AbstractBeanFactory beanFactory) throws Exception;
+    }
+
+    private static final class SupplierInstantiator implements Instantiator {
+        private final Supplier<Object> supplier;
+
+        SupplierInstantiator(Supplier<Object> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public Object newInstance(AbstractBeanFactory beanFactory) {
+            return supplier.get();
+        }
+    }
+
+    private static final class HandleInstantiator implements Instantiator {
+        /**
+         * 无参时是 ()Object，有参时是 (Object[])Object
+         */
+        private final MethodHandle handle;
+        /**
+         * 每个参数：转换好的字面量 / bean名 / 参数类型，由kinds区分
+         */
+        private final Object[] keys;
+        private final int[] kinds;
+
+        HandleInstantiator(MethodHandle handle, Object[] keys, int[] kinds) {
+            this.handle = handle;
+            this.keys = keys;
+            this.kinds = kinds;
+        }
+
+        @Override
+        public Object newInstance(AbstractBeanFactory beanFactory) throws Exception {
+            try {
+                if (keys.length == 0) {
+                    return (Object) handle.invokeExact();
+                }
+                Object[] args = new Object[keys.length];
+                for (int i = 0; i < args.length; i++) {
+                    switch (kinds[i]) {
+                        case ARG_LITERAL -> args[i] = keys[i];
+                        case ARG_BEAN_NAME -> args[i] = requireBean(beanFactory.getBean((String) keys[i]), keys[i]);
+                        default -> args[i] = requireBean(beanFactory.getBean((Class<?>) keys[i]), keys[i]);
+                    }
+                }
+                return (Object) handle.invokeExact(args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        private static Object requireBean(Object bean, Object key) {
+            if (bean == null) {
+                throw new IllegalStateException("找不到构造器参数需要的Bean: " + key);
+            }
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.spring.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 编译期生成的组件索引，由 {@link ComponentIndexProcessor} 写出
+ * <p>
+ * 每行一个组件，tab分隔：类名 类型(component/controller) bean名 scope 注入点 lazy
+ * 注入点用逗号分隔，形如 field=ref:beanName、field=lazyref:beanName 或 field=value:字面量，名字和值都做了URL编码
+ * lazy是类上@Lazy的值，没有注解时为空；旧版本写出的索引没有这一列
+ * <p>
+ * classpath里可能有多个jar各自带索引，全部合并。可以用 -Dmyspring.index.ignore=true 强制扫描
+ */
+public class ComponentIndex {
+
+    public static final String INDEX_LOCATION = "META-INF/myspring.components";
+
+    public static final String COMPONENT = "component";
+    public static final String CONTROLLER = "controller";
+
+    static final String COMPONENT_ANNOTATION = "org.spring.annotation.Component";
+    static final String CONTROLLER_ANNOTATION = "org.spring.annotation.Controller";
+    static final String SCOPE_ANNOTATION = "org.spring.annotation.Scope";
+    static final String VALUE_ANNOTATION = "org.spring.annotation.Value";
+    static final String AUTOWIRED_ANNOTATION = "org.spring.annotation.Autowired";
+    static final String QUALIFIER_ANNOTATION = "org.spring.annotation.Qualifier";
+    static final String LAZY_ANNOTATION = "org.spring.annotation.Lazy";
+
+    private final List<Entry> entries;
+
+    private ComponentIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 读取classpath上所有的索引文件
+     *
+     * @return 没有索引文件或者被禁用时返回null
+     */
+    public static ComponentIndex load(ClassLoader classLoader) throws IOException {
+        if (Boolean.getBoolean("myspring.index.ignore")) {
+            return null;
+        }
+        Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+        if (!urls.hasMoreElements()) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        while (urls.hasMoreElements()) {
+            try (InputStream inputStream = urls.nextElement().openStream();
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        entries.add(Entry.parse(line));
+                    }
+                }
+            }
+        }
+        return new ComponentIndex(entries);
+    }
+
+    /**
+     * 找出某个包(含子包)下的所有组件
+     *
+     * @param basePackage 包名，空串表示所有组件
+     */
+    public List<Entry> getCandidates(String basePackage) {
+        if (basePackage.isEmpty()) {
+            return entries;
+        }
+        String prefix = basePackage + ".";
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.getClassName().startsWith(prefix)) {
+                candidates.add(entry);
+            }
+        }
+        return candidates;
+    }
+
+    public static final class Entry {
+        private final String className;
+        private final String stereotype;
+        private final String beanName;
+        private final String scope;
+        private final List<InjectionPoint> injectionPoints;
+        private final Boolean lazyInit;
+
+        Entry(String className, String stereotype, String beanName, String scope, List<InjectionPoint> injectionPoints, Boolean lazyInit) {
+            this.className = className;
+            this.stereotype = stereotype;
+            this.beanName = beanName;
+            this.scope = scope;
+            this.injectionPoints = Collections.unmodifiableList(injectionPoints);
+            this.lazyInit = lazyInit;
+        }
+
+        static String format(String className, String stereotype, String beanName, String scope, List<String> injectionPoints, Boolean lazyInit) {
+            return className + '\t' + stereotype + '\t' + encode(beanName) + '\t' + scope + '\t' + String.join(",", injectionPoints)
+                    + '\t' + (lazyInit == null ? "" : lazyInit.toString());
+        }
+
+        static Entry parse(String line) {
+            String[] parts = line.split("\t", -1);
+            if (parts.length != 5 && parts.length != 6) {
+                throw new IllegalArgumentException("组件索引格式错误: " + line);
+            }
+            List<InjectionPoint> injectionPoints = new ArrayList<>();
+            if (!parts[4].isEmpty()) {
+                for (String point : parts[4].split(",")) {
+                    injectionPoints.add(InjectionPoint.parse(point));
+                }
+            }
+            Boolean lazyInit = parts.length == 6 && !parts[5].isEmpty() ? Boolean.valueOf(parts[5]) : null;
+            return new Entry(parts[0], parts[1], decode(parts[2]), parts[3], injectionPoints, lazyInit);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getStereotype() {
+            return stereotype;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public List<InjectionPoint> getInjectionPoints() {
+            return injectionPoints;
+        }
+
+        /**
+         * 类上@Lazy的值，没有注解时为null
+         */
+        public Boolean getLazyInit() {
+            return lazyInit;
+        }
+    }
+
+    public static final class InjectionPoint {
+        private final String fieldName;
+        private final boolean reference;
+        private final boolean lazy;
+        private final String value;
+
+        InjectionPoint(String fieldName, boolean reference, boolean lazy, String value) {
+            this.fieldName = fieldName;
+            this.reference = reference;
+            this.lazy = lazy;
+            this.value = value;
+        }
+
+        static String format(String fieldName, boolean reference, String value) {
+            return format(fieldName, reference, false, value);
+        }
+
+        static String format(String fieldName, boolean reference, boolean lazy, String value) {
+            return encode(fieldName) + (reference ? (lazy ? "=lazyref:" : "=ref:") : "=value:") + encode(value);
+        }
+
+        static InjectionPoint parse(String point) {
+            int eq = point.indexOf('=');
+            int colon = point.indexOf(':', eq);
+            if (eq < 0 || colon < 0) {
+                throw new IllegalArgumentException("组件索引注入点格式错误: " + point);
+            }
+            String kind = point.substring(eq + 1, colon);
+            boolean lazy = "lazyref".equals(kind);
+            return new InjectionPoint(decode(point.substring(0, eq)), lazy || "ref".equals(kind), lazy, decode(point.substring(colon + 1)));
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        /**
+         * true表示value是引用的bean名，false表示value是字面量
+         */
+        public boolean isReference() {
+            return reference;
+        }
+
+        /**
+         * 字段上有@Lazy的引用，注入延迟解析的代理
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,193 @@
+package org.spring.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 编译期生成组件索引 META-INF/myspring.components
+ * 运行时有这个文件就不用再扫描classpath和反射字段了
+ * <p>
+ * 只依赖注解的全限定名，不引用框架里的类，这样构建时可以先单独编译它
+ * <p>
+ * 增量编译时只有改动的类会交给处理器，所以写索引前先合并上次的索引：
+ * 这次没编译到的类还存在并且还带着组件注解就保留原来那一行，类被删除或者去掉了注解就丢掉。
+ * 声明支持所有注解(但不认领)，否则只去掉了注解的那次编译处理器根本不会被调用，旧索引里的那一行就删不掉
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    /**
+     * 按类名排序，每次编译输出一致
+     */
+    private final Map<String, String> lines = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (String annotationName : new String[]{ComponentIndex.COMPONENT_ANNOTATION, ComponentIndex.CONTROLLER_ANNOTATION}) {
+            TypeElement annotation = processingEnv.getElementUtils().getTypeElement(annotationName);
+            if (annotation == null) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement type) {
+                    index(type);
+                }
+            }
+        }
+        if (roundEnv.processingOver()) {
+            boolean existed = mergePrevious();
+            if (existed || !lines.isEmpty()) {
+                write();
+            }
+        }
+        return false;
+    }
+
+    private void index(TypeElement type) {
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String stereotype;
+        String name;
+        String scope = "singleton";
+        Boolean lazyInit = null;
+        if (findAnnotation(type, ComponentIndex.CONTROLLER_ANNOTATION) != null) {
+            stereotype = ComponentIndex.CONTROLLER;
+            name = className;
+        } else {
+            stereotype = ComponentIndex.COMPONENT;
+            name = stringValue(type, ComponentIndex.COMPONENT_ANNOTATION, "name");
+            if (name == null || name.isEmpty()) {
+                name = className;
+            }
+            String declaredScope = stringValue(type, ComponentIndex.SCOPE_ANNOTATION, "value");
+            if (declaredScope != null) {
+                scope = declaredScope;
+            }
+        }
+        if (findAnnotation(type, ComponentIndex.LAZY_ANNOTATION) != null) {
+            lazyInit = Boolean.valueOf(stringValue(type, ComponentIndex.LAZY_ANNOTATION, "value"));
+        }
+        List<String> injectionPoints = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            String fieldName = field.getSimpleName().toString();
+            if (findAnnotation(field, ComponentIndex.VALUE_ANNOTATION) != null) {
+                String value = stringValue(field, ComponentIndex.VALUE_ANNOTATION, "value");
+                if (value != null && !value.isEmpty()) {
+                    injectionPoints.add(ComponentIndex.InjectionPoint.format(fieldName, false, value));
+                }
+            } else if (findAnnotation(field, ComponentIndex.AUTOWIRED_ANNOTATION) != null) {
+                String ref = fieldName;
+                if (findAnnotation(field, ComponentIndex.QUALIFIER_ANNOTATION) != null) {
+                    ref = stringValue(field, ComponentIndex.QUALIFIER_ANNOTATION, "value");
+                    if (ref == null || ref.isEmpty()) {
+                        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "the value of Qualifier should not be null!", field);
+                        continue;
+                    }
+                }
+                boolean lazy = findAnnotation(field, ComponentIndex.LAZY_ANNOTATION) != null
+                        && Boolean.parseBoolean(stringValue(field, ComponentIndex.LAZY_ANNOTATION, "value"));
+                injectionPoints.add(ComponentIndex.InjectionPoint.format(fieldName, true, lazy, ref));
+            }
+        }
+        lines.put(className, ComponentIndex.Entry.format(className, stereotype, name, scope, injectionPoints, lazyInit));
+    }
+
+    /**
+     * 把上次生成的索引里仍然有效的行并进来
+     *
+     * @return 是否有上次的索引
+     */
+    private boolean mergePrevious() {
+        List<String> previous = new ArrayList<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(file.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        previous.add(line);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            //第一次编译或者clean之后没有旧索引
+            return false;
+        }
+        for (String line : previous) {
+            int tab = line.indexOf('\t');
+            String className = tab < 0 ? line : line.substring(0, tab);
+            if (lines.containsKey(className)) {
+                continue;
+            }
+            //索引里是binary name，查找类型要用canonical name
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+            if (type != null && (findAnnotation(type, ComponentIndex.COMPONENT_ANNOTATION) != null
+                    || findAnnotation(type, ComponentIndex.CONTROLLER_ANNOTATION) != null)) {
+                lines.put(className, line);
+            }
+        }
+        return true;
+    }
+
+    private void write() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.INDEX_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# className\tstereotype\tbeanName\tscope\tinjectionPoints\tlazy\n");
+                for (String line : lines.values()) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写组件索引失败: " + e);
+        }
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private String stringValue(Element element, String annotationType, String attribute) {
+        AnnotationMirror mirror = findAnnotation(element, annotationType);
+        if (mirror == null) {
+            return null;
+        }
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+}
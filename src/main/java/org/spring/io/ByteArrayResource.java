@@ -0,0 +1,44 @@
+package org.spring.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 内存里的资源，内容只读共享，不会再拷贝
+ */
+public class ByteArrayResource implements Resource {
+
+    private final byte[] bytes;
+    private final String description;
+
+    public ByteArrayResource(byte[] bytes, String description) {
+        this.bytes = bytes;
+        this.description = description;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public long contentLength() {
+        return bytes.length;
+    }
+
+    @Override
+    public String getDescription() {
+        return "byte array [" + description + "]";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
@@ -0,0 +1,111 @@
+package org.spring.io;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * classpath上的资源，URL只解析一次
+ * 在目录里的资源转成 {@link FileSystemResource}，读取走文件通道；在jar里的资源读取时才打开连接
+ */
+public class ClassPathResource implements Resource {
+
+    private final String path;
+    private final URL url;
+    /**
+     * 资源是普通文件时的委托，否则为null
+     */
+    private final FileSystemResource file;
+
+    public ClassPathResource(String path, ClassLoader classLoader) {
+        this.path = path.startsWith("/") ? path.substring(1) : path;
+        this.url = classLoader.getResource(this.path);
+        this.file = toFile(url);
+    }
+
+    private static FileSystemResource toFile(URL url) {
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new FileSystemResource(Paths.get(url.toURI()));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean exists() {
+        //目录在classpath上也有URL，不算存在的资源
+        return file != null ? file.exists() : url != null && !url.getPath().endsWith("/");
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (file != null) {
+            return file.getInputStream();
+        }
+        return openConnection().getInputStream();
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() throws IOException {
+        return file != null ? file.readableChannel() : Resource.super.readableChannel();
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() throws IOException {
+        return file != null ? file.getByteBuffer() : Resource.super.getByteBuffer();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return file != null ? file.contentLength() : openConnection().getContentLengthLong();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return file != null ? file.lastModified() : openConnection().getLastModified();
+    }
+
+    @Override
+    public Path getFilePath() {
+        return file != null ? file.getPath() : null;
+    }
+
+    @Override
+    public URL getURL() throws IOException {
+        if (url == null) {
+            throw new FileNotFoundException(getDescription() + " 不存在");
+        }
+        return url;
+    }
+
+    private URLConnection openConnection() throws IOException {
+        URLConnection connection = getURL().openConnection();
+        //jar连接默认会缓存JarFile，这里保持默认，避免每次重新打开jar
+        connection.setUseCaches(true);
+        return connection;
+    }
+
+    @Override
+    public String getDescription() {
+        return "class path resource [" + path + "]";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
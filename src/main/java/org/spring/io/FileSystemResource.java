@@ -0,0 +1,93 @@
+package org.spring.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件系统上的资源，读取走NIO，超过阈值的文件整体读取时用内存映射
+ */
+public class FileSystemResource implements Resource {
+
+    /**
+     * 大于这个大小的文件getByteBuffer时做内存映射，小文件直接读到堆里更便宜
+     */
+    public static final long MMAP_THRESHOLD = 256 * 1024;
+
+    private final Path path;
+
+    public FileSystemResource(Path path) {
+        this.path = path.toAbsolutePath().normalize();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public Path getFilePath() {
+        return path;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MMAP_THRESHOLD) {
+                //映射在通道关闭后仍然有效
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //读满为止
+            }
+            return buffer.flip().asReadOnlyBuffer();
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return Files.size(path);
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+
+    @Override
+    public URL getURL() throws IOException {
+        return path.toUri().toURL();
+    }
+
+    @Override
+    public String getDescription() {
+        return "file [" + path + "]";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
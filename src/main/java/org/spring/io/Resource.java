@@ -1,6 +1,15 @@
 package org.spring.io;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * 获取资源（配置文件）的接口
@@ -9,4 +18,70 @@ import java.io.InputStream;
  */
 public interface Resource {
     InputStream getInputStream() throws Exception;
-}
\ No newline at end of file
+
+    default boolean exists() {
+        return true;
+    }
+
+    /**
+     * 读资源的通道，文件资源直接是FileChannel
+     */
+    default ReadableByteChannel readableChannel() throws IOException {
+        return Channels.newChannel(openStream(this));
+    }
+
+    /**
+     * 整个资源的内容，大文件资源返回只读的内存映射
+     */
+    default ByteBuffer getByteBuffer() throws IOException {
+        try (InputStream inputStream = openStream(this)) {
+            return ByteBuffer.wrap(inputStream.readAllBytes()).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * @return 不知道长度时返回-1
+     */
+    default long contentLength() throws IOException {
+        return -1;
+    }
+
+    /**
+     * @return 不知道修改时间时返回0
+     */
+    default long lastModified() throws IOException {
+        return 0;
+    }
+
+    default URL getURL() throws IOException {
+        throw new FileNotFoundException(getDescription() + " 没有对应的URL");
+    }
+
+    /**
+     * 资源是本地文件时返回它的路径，可以直接打开FileChannel做零拷贝发送
+     *
+     * @return 不是本地文件(比如在jar里)时返回null
+     */
+    default Path getFilePath() {
+        try {
+            URL url = getURL();
+            return "file".equals(url.getProtocol()) ? Paths.get(url.toURI()) : null;
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    default String getDescription() {
+        return toString();
+    }
+
+    private static InputStream openStream(Resource resource) throws IOException {
+        try {
+            return resource.getInputStream();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
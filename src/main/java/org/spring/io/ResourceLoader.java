@@ -1,15 +1,215 @@
 package org.spring.io;
 
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * 资源加载器，通过路径加载资源
+ * <p>
+ * 支持的写法：classpath:路径、file:路径、jar:/http:等URL，没有前缀按classpath处理。
+ * 解析过的资源放在一个有界的LRU缓存里，同一路径不会重复查找classloader。
+ * {@link #getResources(String)} 支持 classpath*: 前缀和 **、*、? 通配符
  *
  * @author Wu
  */
+@Slf4j
 public class ResourceLoader {
+
+    public static final String CLASSPATH_URL_PREFIX = "classpath:";
+    public static final String CLASSPATH_ALL_URL_PREFIX = "classpath*:";
+    public static final String FILE_URL_PREFIX = "file:";
+
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, Resource> cache;
+
+    public ResourceLoader() {
+        this(null, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param classLoader 为null时用加载这个类的classloader
+     * @param cacheSize   缓存的资源个数
+     */
+    public ResourceLoader(ClassLoader classLoader, int cacheSize) {
+        this.classLoader = classLoader != null ? classLoader : ResourceLoader.class.getClassLoader();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resource> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
     public Resource getResource(String location) {
-        URL url = this.getClass().getClassLoader().getResource(location);
-        return new UrlResource(url);
+        Resource resource = cache.get(location);
+        if (resource == null) {
+            resource = resolve(location);
+            //不存在的资源不缓存，之后可能会出现
+            if (resource.exists()) {
+                cache.put(location, resource);
+            }
+        }
+        return resource;
+    }
+
+    private Resource resolve(String location) {
+        if (location.startsWith(CLASSPATH_URL_PREFIX)) {
+            return new ClassPathResource(location.substring(CLASSPATH_URL_PREFIX.length()), classLoader);
+        }
+        if (location.startsWith(FILE_URL_PREFIX)) {
+            try {
+                return new FileSystemResource(Paths.get(new URL(location).toURI()));
+            } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+                return new FileSystemResource(Paths.get(location.substring(FILE_URL_PREFIX.length())));
+            }
+        }
+        if (location.indexOf(':') > 1) {
+            try {
+                return new UrlResource(new URL(location));
+            } catch (MalformedURLException ignored) {
+                //不是URL，按classpath处理
+            }
+        }
+        return new ClassPathResource(location, classLoader);
+    }
+
+    public static boolean isPattern(String location) {
+        return location.startsWith(CLASSPATH_ALL_URL_PREFIX) || location.indexOf('*') >= 0 || location.indexOf('?') >= 0;
+    }
+
+    /**
+     * 按模式查找资源，比如 classpath*:**&#47;*.xml
+     * classpath*: 在所有classpath根(目录和jar)里找，否则只用第一个匹配的根；结果按URL排序
+     */
+    public Resource[] getResources(String locationPattern) throws IOException {
+        if (!isPattern(locationPattern)) {
+            Resource resource = getResource(locationPattern);
+            return resource.exists() ? new Resource[]{resource} : new Resource[0];
+        }
+        boolean all = locationPattern.startsWith(CLASSPATH_ALL_URL_PREFIX);
+        String pattern = all ? locationPattern.substring(CLASSPATH_ALL_URL_PREFIX.length())
+                : locationPattern.startsWith(CLASSPATH_URL_PREFIX) ? locationPattern.substring(CLASSPATH_URL_PREFIX.length()) : locationPattern;
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        String rootDir = rootDir(pattern);
+        Pattern matcher = compile(pattern.substring(rootDir.length()));
+        Map<String, Resource> result = new TreeMap<>();
+        Enumeration<URL> roots = classLoader.getResources(rootDir);
+        while (roots.hasMoreElements()) {
+            URL root = roots.nextElement();
+            if ("file".equals(root.getProtocol())) {
+                findInDirectory(root, matcher, result);
+            } else if ("jar".equals(root.getProtocol())) {
+                findInJar(root, rootDir, matcher, result);
+            }
+            if (!all && !result.isEmpty()) {
+                break;
+            }
+        }
+        return result.values().toArray(new Resource[0]);
+    }
+
+    private static void findInDirectory(URL root, Pattern matcher, Map<String, Resource> result) throws IOException {
+        Path rootPath;
+        try {
+            rootPath = Paths.get(root.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        try (Stream<Path> paths = Files.walk(rootPath)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                String relative = rootPath.relativize(path).toString().replace('\\', '/');
+                if (matcher.matcher(relative).matches()) {
+                    FileSystemResource resource = new FileSystemResource(path);
+                    result.put(path.toUri().toString(), resource);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void findInJar(URL root, String rootDir, Pattern matcher, Map<String, Resource> result) throws IOException {
+        JarURLConnection connection = (JarURLConnection) root.openConnection();
+        String jarUrl = connection.getJarFileURL().toString();
+        try (JarFile jar = new JarFile(Paths.get(connection.getJarFileURL().toURI()).toFile())) {
+            jar.stream()
+                    .filter(entry -> !entry.isDirectory() && entry.getName().startsWith(rootDir))
+                    .filter(entry -> matcher.matcher(entry.getName().substring(rootDir.length())).matches())
+                    .forEach(entry -> {
+                        String url = "jar:" + jarUrl + "!/" + entry.getName();
+                        try {
+                            result.put(url, new UrlResource(new URL(url)));
+                        } catch (MalformedURLException e) {
+                            log.warn("无法构造jar资源地址 {}", url);
+                        }
+                    });
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("无法打开jar " + jarUrl, e);
+        }
+    }
+
+    /**
+     * 第一个带通配符的段之前的目录，以/结尾；模式一开始就有通配符时为空串
+     */
+    private static String rootDir(String pattern) {
+        int wildcard = pattern.length();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                wildcard = i;
+                break;
+            }
+        }
+        return pattern.substring(0, pattern.lastIndexOf('/', wildcard) + 1);
+    }
+
+    /**
+     * **&#47; 匹配任意层目录(包括零层)，* 匹配一段里的任意字符，? 匹配一个字符
+     */
+    public static Pattern compile(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (pattern.startsWith("**/", i)) {
+                regex.append("(?:.*/)?");
+                i += 3;
+            } else if (pattern.startsWith("**", i)) {
+                regex.append(".*");
+                i += 2;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+                i++;
+            } else if (c == '?') {
+                regex.append("[^/]");
+                i++;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                i++;
+            }
+        }
+        return Pattern.compile(regex.toString());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package org.spring.io;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
@@ -14,9 +16,43 @@ public class UrlResource implements Resource {
     public UrlResource(URL url) {
         this.url = url;
     }
+
+    @Override
+    public boolean exists() {
+        return url != null;
+    }
+
     public InputStream getInputStream() throws Exception {
         URLConnection urlConnection = url.openConnection();
         urlConnection.connect();
         return urlConnection.getInputStream();
     }
-}
\ No newline at end of file
+
+    @Override
+    public long contentLength() throws IOException {
+        return getURL().openConnection().getContentLengthLong();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return getURL().openConnection().getLastModified();
+    }
+
+    @Override
+    public URL getURL() throws IOException {
+        if (url == null) {
+            throw new FileNotFoundException("URL资源不存在");
+        }
+        return url;
+    }
+
+    @Override
+    public String getDescription() {
+        return "URL [" + url + "]";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
@@ -0,0 +1,254 @@
+package org.spring.reader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * 直接读.class文件找带注解的类，不加载也不初始化类
+ * <p>
+ * 只解析常量池和类上的RuntimeVisibleAnnotations属性，
+ * 常量池里连注解的描述符都没有的文件直接跳过。目录和jar里的文件并行解析
+ */
+@Slf4j
+public final class ClassFileScanner {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private ClassFileScanner() {
+    }
+
+    /**
+     * 扫描包(含子包)下带有指定注解之一的类
+     *
+     * @param classLoader 类加载器
+     * @param basePackage 包名
+     * @param annotations 注解类型
+     * @return 类名，按字母排序
+     */
+    @SafeVarargs
+    public static Set<String> scan(ClassLoader classLoader, String basePackage, Class<? extends java.lang.annotation.Annotation>... annotations) {
+        byte[][] descriptors = new byte[annotations.length][];
+        for (int i = 0; i < annotations.length; i++) {
+            descriptors[i] = ("L" + annotations[i].getName().replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8);
+        }
+        String packageDirName = basePackage.replace('.', '/');
+        Set<String> result = Collections.synchronizedSet(new TreeSet<>());
+        try {
+            Enumeration<URL> urls = classLoader.getResources(packageDirName);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    scanDirectory(Paths.get(url.toURI()), descriptors, result);
+                } else if ("jar".equals(url.getProtocol())) {
+                    scanJar(url, packageDirName, descriptors, result);
+                }
+            }
+        } catch (IOException | URISyntaxException | UncheckedIOException e) {
+            log.error("扫描包 {} 出错", basePackage, e);
+        }
+        return result;
+    }
+
+    private static void scanDirectory(Path root, byte[][] descriptors, Set<String> result) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(path -> path.toString().endsWith(".class"))
+                    .parallel()
+                    .forEach(path -> {
+                        try {
+                            String className = parse(path.toString(), Files.readAllBytes(path), descriptors);
+                            if (className != null) result.add(className);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+    }
+
+    private static void scanJar(URL url, String packageDirName, byte[][] descriptors, Set<String> result) throws IOException {
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        //带上结尾的'/'，否则扫描com/foo会把com/foobar下的类也算进来
+        String prefix = packageDirName.isEmpty() ? "" : packageDirName + "/";
+        try (JarFile jar = connection.getJarFile()) {
+            jar.stream()
+                    .filter(entry -> !entry.isDirectory() && inPackage(entry.getName(), prefix))
+                    .parallel()
+                    .forEach(entry -> {
+                        try (InputStream inputStream = jar.getInputStream(entry)) {
+                            String className = parse(entry.getName(), inputStream.readAllBytes(), descriptors);
+                            if (className != null) result.add(className);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+    }
+
+    static boolean inPackage(String entryName, String prefix) {
+        return entryName.startsWith(prefix) && entryName.endsWith(".class");
+    }
+
+    /**
+     * 解析一个文件，文件损坏(被截断、常量池索引越界)时记录后跳过，不影响其他文件
+     */
+    static String parse(String name, byte[] bytes, byte[][] descriptors) {
+        try {
+            return annotatedClassName(ByteBuffer.wrap(bytes), descriptors);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            log.warn("跳过无法解析的class文件 {}: {}", name, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 解析一个class文件
+     *
+     * @return 类上有指定注解时返回类名，否则null
+     */
+    static String annotatedClassName(ByteBuffer buf, byte[][] descriptors) {
+        if (buf.remaining() < 10 || buf.getInt() != MAGIC) {
+            return null;
+        }
+        buf.position(8);
+        int count = buf.getShort() & 0xFFFF;
+        //Utf8常量在文件里的偏移，其他常量只需要跳过
+        int[] utf8Offsets = new int[count];
+        int[] classNameIndexes = new int[count];
+        boolean mentioned = false;
+        for (int i = 1; i < count; i++) {
+            int tag = buf.get();
+            switch (tag) {
+                case 1 -> {
+                    int length = buf.getShort() & 0xFFFF;
+                    utf8Offsets[i] = buf.position() - 2;
+                    if (!mentioned) {
+                        mentioned = matches(buf, utf8Offsets[i], descriptors);
+                    }
+                    buf.position(buf.position() + length);
+                }
+                case 7 -> classNameIndexes[i] = buf.getShort() & 0xFFFF;
+                case 8, 16, 19, 20 -> buf.position(buf.position() + 2);
+                case 15 -> buf.position(buf.position() + 3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> buf.position(buf.position() + 4);
+                case 5, 6 -> {
+                    buf.position(buf.position() + 8);
+                    i++;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        if (!mentioned) {
+            return null;
+        }
+        int accessFlags = buf.getShort() & 0xFFFF;
+        if ((accessFlags & ACC_ANNOTATION) != 0) {
+            return null;
+        }
+        int thisClass = buf.getShort() & 0xFFFF;
+        buf.getShort();
+        skip(buf, (buf.getShort() & 0xFFFF) * 2);
+        skipMembers(buf);
+        skipMembers(buf);
+        int attributes = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < attributes; i++) {
+            String name = utf8(buf, utf8Offsets[buf.getShort() & 0xFFFF]);
+            int length = buf.getInt();
+            int end = buf.position() + length;
+            if ("RuntimeVisibleAnnotations".equals(name)) {
+                int annotations = buf.getShort() & 0xFFFF;
+                for (int j = 0; j < annotations; j++) {
+                    if (matches(buf, utf8Offsets[buf.getShort() & 0xFFFF], descriptors)) {
+                        return utf8(buf, utf8Offsets[classNameIndexes[thisClass]]).replace('/', '.');
+                    }
+                    skipAnnotationBody(buf);
+                }
+            }
+            buf.position(end);
+        }
+        return null;
+    }
+
+    private static void skipMembers(ByteBuffer buf) {
+        int members = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < members; i++) {
+            skip(buf, 6);
+            int attributes = buf.getShort() & 0xFFFF;
+            for (int j = 0; j < attributes; j++) {
+                skip(buf, 2);
+                skip(buf, buf.getInt());
+            }
+        }
+    }
+
+    private static void skipAnnotationBody(ByteBuffer buf) {
+        int pairs = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < pairs; i++) {
+            skip(buf, 2);
+            skipElementValue(buf);
+        }
+    }
+
+    private static void skipElementValue(ByteBuffer buf) {
+        int tag = buf.get();
+        switch (tag) {
+            case 'e' -> skip(buf, 4);
+            case '@' -> {
+                skip(buf, 2);
+                skipAnnotationBody(buf);
+            }
+            case '[' -> {
+                int values = buf.getShort() & 0xFFFF;
+                for (int i = 0; i < values; i++) {
+                    skipElementValue(buf);
+                }
+            }
+            default -> skip(buf, 2);
+        }
+    }
+
+    /**
+     * 偏移处的Utf8常量是否等于某个注解描述符，逐字节比较不创建字符串
+     */
+    private static boolean matches(ByteBuffer buf, int offset, byte[][] descriptors) {
+        int length = buf.getShort(offset) & 0xFFFF;
+        for (byte[] descriptor : descriptors) {
+            if (descriptor.length != length) continue;
+            int i = 0;
+            while (i < length && buf.get(offset + 2 + i) == descriptor[i]) i++;
+            if (i == length) return true;
+        }
+        return false;
+    }
+
+    private static void skip(ByteBuffer buf, int n) {
+        buf.position(buf.position() + n);
+    }
+
+    /**
+     * 读取偏移处的Utf8常量，类名和注解描述符都是ASCII，按UTF-8解码即可
+     */
+    private static String utf8(ByteBuffer buf, int offset) {
+        int length = buf.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buf.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
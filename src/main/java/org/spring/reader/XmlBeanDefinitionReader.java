@@ -5,28 +5,19 @@ import org.spring.annotation.*;
 import org.spring.entity.BeanDefinition;
 import org.spring.entity.BeanReference;
 import org.spring.entity.PropertyValue;
+import org.spring.index.ComponentIndex;
 import org.spring.io.ResourceLoader;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.spring.io.Resource;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.File;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
-import java.net.JarURLConnection;
-import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.LinkedHashSet;
-import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 借鉴的
@@ -34,133 +25,303 @@ import java.util.jar.JarFile;
  *
  * @author Wu
  */
-//TODO 用委托模式解决重复代码
 @Slf4j
 public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 
+    /**
+     * 已经扫描过的包
+     */
+    private final Set<String> scannedPackages = new LinkedHashSet<>();
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
     public XmlBeanDefinitionReader(ResourceLoader resourceLoader) {
         super(resourceLoader);
     }
 
     @Override
     public void loadBeanDefinitions(String location) throws Exception {
-        InputStream inputStream = getResourceLoader().getResource(location).getInputStream();
-        doLoadBeanDefinitions(inputStream);
+        loadBeanDefinitions(new String[]{location});
     }
 
-    protected void doLoadBeanDefinitions(InputStream inputStream) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-        Document document = documentBuilder.parse(inputStream);
-        // 解析xml document并注册bean
-        registerBeanDefinitions(document);
-        inputStream.close();
+    /**
+     * 并行解析多个配置文件和它们import的文件，解析完再按文档顺序注册，
+     * import的内容注册在import出现的位置，后出现的同名bean覆盖前面的
+     *
+     * @param locations 配置位置，可以带通配符，比如 classpath*:conf/**&#47;*.xml
+     */
+    public void loadBeanDefinitions(String... locations) throws Exception {
+        Map<String, List<Object>> parsed = new HashMap<>();
+        Set<String> pending = new LinkedHashSet<>(Arrays.asList(locations));
+        while (!pending.isEmpty()) {
+            //同一层的文件互不依赖，一起解析
+            Map<String, CompletableFuture<List<Object>>> futures = new LinkedHashMap<>();
+            for (String location : pending) {
+                futures.put(location, ResourceLoader.isPattern(location)
+                        ? CompletableFuture.completedFuture(expand(location))
+                        : CompletableFuture.supplyAsync(() -> parse(location)));
+            }
+            Set<String> imports = new LinkedHashSet<>();
+            for (Map.Entry<String, CompletableFuture<List<Object>>> entry : futures.entrySet()) {
+                List<Object> items;
+                try {
+                    items = entry.getValue().join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) throw (Exception) cause;
+                    throw e;
+                }
+                parsed.put(entry.getKey(), items);
+                for (Object item : items) {
+                    if (item instanceof ImportItem importItem && !parsed.containsKey(importItem.location())
+                            && !futures.containsKey(importItem.location())) {
+                        imports.add(importItem.location());
+                    }
+                }
+            }
+            pending = imports;
+        }
+        Set<String> registered = new HashSet<>();
+        for (String location : locations) {
+            register(location, parsed, registered);
+        }
     }
 
-    public void registerBeanDefinitions(Document document) {
-        Element root = document.getDocumentElement();
-        // 从文件根递归解析
-        parseBeanDefinitions(root);
+    private void register(String location, Map<String, List<Object>> parsed, Set<String> registered) {
+        //互相import的文件只注册一次
+        if (!registered.add(location)) {
+            return;
+        }
+        for (Object item : parsed.get(location)) {
+            if (item instanceof BeanItem beanItem) {
+                log.debug("BeanDefinition信息从XML取出:{}", beanItem.beanDefinition());
+                getRegistry().put(beanItem.name(), beanItem.beanDefinition());
+            } else if (item instanceof ScanItem scanItem) {
+                scan(scanItem.basePackage());
+            } else if (item instanceof ImportItem importItem) {
+                register(importItem.location(), parsed, registered);
+            }
+        }
     }
 
-    protected void parseBeanDefinitions(Element root) {
-        NodeList nodeList = root.getChildNodes();
-        // 确定是否注解配置
-        String basePackage = null;
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            if (nodeList.item(i) instanceof Element) {
-                Element ele = (Element) nodeList.item(i);
-                if (ele.getTagName().equals("component-scan")) {
-                    basePackage = ele.getAttribute("base-package");
-                    break;
-                }
-            }
+    /**
+     * 通配符位置当成一个依次import所有匹配文件的配置
+     */
+    private List<Object> expand(String locationPattern) throws IOException {
+        List<Object> items = new ArrayList<>();
+        for (Resource resource : getResourceLoader().getResources(locationPattern)) {
+            items.add(new ImportItem(resource.getURL().toString()));
         }
-        if (basePackage != null) {
-            parseAnnotation(basePackage);
-            return;
+        if (items.isEmpty()) {
+            log.warn("{} 没有匹配到任何配置文件", locationPattern);
         }
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            if (node instanceof Element) {
-                processBeanDefinition((Element) node);
+        return items;
+    }
+
+    private List<Object> parse(String location) {
+        Resource resource = getResourceLoader().getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("找不到配置文件: " + location);
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            return doLoadBeanDefinitions(inputStream);
+        } catch (Exception e) {
+            throw new CompletionException(new IllegalStateException("解析配置文件 " + location + " 失败: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 用StAX向前读一遍，只保留当前正在读的bean，内存和文件大小无关
+     * 只认根元素下的bean、component-scan、import和bean下的直接子元素property
+     *
+     * @return 按文档顺序的BeanItem、ScanItem、ImportItem
+     */
+    protected List<Object> doLoadBeanDefinitions(InputStream inputStream) throws Exception {
+        List<Object> items = new ArrayList<>();
+        XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(inputStream);
+        try {
+            int depth = 0;
+            String name = null;
+            BeanDefinition beanDefinition = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String tag = xml.getLocalName();
+                    if (depth == 2) {
+                        switch (tag) {
+                            case "bean" -> {
+                                name = attribute(xml, "id");
+                                beanDefinition = processBeanDefinition(xml);
+                            }
+                            case "component-scan" -> items.add(new ScanItem(attribute(xml, "base-package")));
+                            case "import" -> items.add(new ImportItem(attribute(xml, "resource")));
+                            default -> log.debug("忽略未知的元素<{}>", tag);
+                        }
+                    } else if (depth == 3 && beanDefinition != null && "property".equals(tag)) {
+                        processProperty(xml, beanDefinition);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && beanDefinition != null) {
+                        if (beanDefinition.getBeanClass() != null) {
+                            items.add(new BeanItem(name, beanDefinition));
+                        }
+                        beanDefinition = null;
+                    }
+                    depth--;
+                }
             }
+        } finally {
+            xml.close();
         }
+        return items;
     }
 
-    protected void processBeanDefinition(Element ele) {
-        String name = ele.getAttribute("id");
-        String className = ele.getAttribute("class");
-        boolean singleton = !ele.hasAttribute("scope") || !"prototype".equals(ele.getAttribute("scope"));
+    protected BeanDefinition processBeanDefinition(XMLStreamReader xml) {
+        String className = attribute(xml, "class");
+        boolean singleton = !"prototype".equals(attribute(xml, "scope"));
         BeanDefinition beanDefinition = new BeanDefinition();
-        processProperty(ele, beanDefinition);
-        beanDefinition.setBeanClassName(className);
+        beanDefinition.setPropertyValues(new ArrayList<>());
         beanDefinition.setSingleton(singleton);
+        //没写或者写default时跟随上下文的默认值
+        String lazyInit = attribute(xml, "lazy-init");
+        if ("true".equals(lazyInit) || "false".equals(lazyInit)) {
+            beanDefinition.setLazyInit(Boolean.valueOf(lazyInit));
+        }
         if (!className.isBlank()) {
             try {
                 Class<?> beanClass = Class.forName(className);
+                beanDefinition.setBeanClassName(className);
                 beanDefinition.setBeanClass(beanClass);
             } catch (ClassNotFoundException e) {
                 log.error("can't find the class");
                 throw new RuntimeException(e);
             }
-            log.debug("BeanDefinition信息从XML取出:{}", beanDefinition);
-            getRegistry().put(name, beanDefinition);
         }
+        return beanDefinition;
     }
 
-    private void processProperty(Element ele, BeanDefinition beanDefinition) {
-        NodeList propertyNode = ele.getElementsByTagName("property");
-        for (int i = 0; i < propertyNode.getLength(); i++) {
-            Node node = propertyNode.item(i);
-            if (node instanceof Element propertyEle) {
-                String name = propertyEle.getAttribute("name");
-                String value = propertyEle.getAttribute("value");
-                if (beanDefinition.getPropertyValues() == null) {
-                    beanDefinition.setPropertyValues(new ArrayList<>());
-                }
-                if (value.length() > 0) {
-                    // 优先进行值注入
-                    beanDefinition.getPropertyValues().add(new PropertyValue(name, value));
-                } else {
-                    String ref = propertyEle.getAttribute("ref");
-                    if (ref.length() == 0) {
-                        log.error("property为空 建议自杀");
-                        throw new IllegalArgumentException("Configuration problem: <property> element for property" + name + "' must specify a ref or value");
-                    }
-                    BeanReference beanReference = new BeanReference(ref);
-                    beanDefinition.getPropertyValues().add(new PropertyValue(name, beanReference));
-                }
+    private void processProperty(XMLStreamReader xml, BeanDefinition beanDefinition) {
+        String name = attribute(xml, "name");
+        String value = attribute(xml, "value");
+        if (value.length() > 0) {
+            // 优先进行值注入
+            beanDefinition.getPropertyValues().add(new PropertyValue(name, value));
+        } else {
+            String ref = attribute(xml, "ref");
+            if (ref.length() == 0) {
+                log.error("property为空 建议自杀");
+                throw new IllegalArgumentException("Configuration problem: <property> element for property" + name + "' must specify a ref or value");
             }
+            BeanReference beanReference = new BeanReference(ref);
+            beanDefinition.getPropertyValues().add(new PropertyValue(name, beanReference));
         }
     }
 
-    protected void parseAnnotation(String basePackage) {
+    /**
+     * 没有这个属性时返回空串，和DOM的getAttribute一致
+     */
+    private static String attribute(XMLStreamReader xml, String name) {
+        String value = xml.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    private record BeanItem(String name, BeanDefinition beanDefinition) {
+    }
+
+    private record ScanItem(String basePackage) {
+    }
+
+    private record ImportItem(String location) {
+    }
+
+    /**
+     * 扫描包下的@Component和@Controller，一个包只扫一次，已经被扫描过的父包覆盖的子包直接跳过
+     * 其他模块(比如web层)在上下文刷新的注册阶段调用它，和XML里的component-scan共用一次扫描
+     *
+     * @param basePackage 包名
+     */
+    public void scan(String basePackage) {
+        for (String scanned : scannedPackages) {
+            if (scanned.isEmpty() || basePackage.equals(scanned) || basePackage.startsWith(scanned + ".")) {
+                log.debug("包 {} 已经被扫描过", basePackage);
+                return;
+            }
+        }
+        scannedPackages.add(basePackage);
+        ComponentIndex index = loadComponentIndex();
+        if (index != null) {
+            //有编译期索引就直接用，不扫描也不反射字段
+            for (ComponentIndex.Entry entry : index.getCandidates(basePackage)) {
+                processIndexedBeanDefinition(entry);
+            }
+            return;
+        }
         Set<Class<?>> classes = getClasses(basePackage);
         for (Class<?> clazz : classes) {
             processAnnotationBeanDefinition(clazz);
         }
     }
 
-    //粗略只定义了Component ,因此只需要搜索Component
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        //配置文件不需要DTD和外部实体
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    //Controller也是一种Component，bean名字是类名
     protected void processAnnotationBeanDefinition(Class<?> clazz) {
-        if (clazz.isAnnotationPresent(Component.class)) {
-            String name = clazz.getAnnotation(Component.class).name();
+        boolean controller = clazz.isAnnotationPresent(Controller.class);
+        if (controller || clazz.isAnnotationPresent(Component.class)) {
+            String name = controller ? "" : clazz.getAnnotation(Component.class).name();
             if (name == null || name.length() == 0) {
                 name = clazz.getName();
             }
             String className = clazz.getName();
-            boolean singleton = !clazz.isAnnotationPresent(Scope.class) || !"prototype".equals(clazz.getAnnotation(Scope.class).value());
+            boolean singleton = controller || !clazz.isAnnotationPresent(Scope.class) || !"prototype".equals(clazz.getAnnotation(Scope.class).value());
             BeanDefinition beanDefinition = new BeanDefinition();
             processAnnotationProperty(clazz, beanDefinition);
             beanDefinition.setBeanClassName(className);
             beanDefinition.setSingleton(singleton);
+            if (clazz.isAnnotationPresent(Lazy.class)) {
+                beanDefinition.setLazyInit(clazz.getAnnotation(Lazy.class).value());
+            }
 
-            log.debug("BeanDefinition信息从XML取出:{}", beanDefinition);
+            log.debug("BeanDefinition信息从注解取出:{}", beanDefinition);
             getRegistry().put(name, beanDefinition);
         }
     }
 
+    protected void processIndexedBeanDefinition(ComponentIndex.Entry entry) {
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setPropertyValues(new ArrayList<>());
+        for (ComponentIndex.InjectionPoint injectionPoint : entry.getInjectionPoints()) {
+            Object value = injectionPoint.isReference() ? new BeanReference(injectionPoint.getValue(), injectionPoint.isLazy()) : injectionPoint.getValue();
+            beanDefinition.getPropertyValues().add(new PropertyValue(injectionPoint.getFieldName(), value));
+        }
+        beanDefinition.setBeanClassName(entry.getClassName());
+        beanDefinition.setSingleton(!"prototype".equals(entry.getScope()));
+        beanDefinition.setLazyInit(entry.getLazyInit());
+        log.debug("BeanDefinition信息从组件索引取出:{}", beanDefinition);
+        getRegistry().put(entry.getBeanName(), beanDefinition);
+    }
+
+    /**
+     * 读取编译期生成的组件索引
+     *
+     * @return 没有索引时返回null
+     */
+    public static ComponentIndex loadComponentIndex() {
+        try {
+            return ComponentIndex.load(Thread.currentThread().getContextClassLoader());
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("读取组件索引失败，改为扫描classpath: {}", e.toString());
+            return null;
+        }
+    }
+
     public static void processAnnotationProperty(Class<?> clazz, BeanDefinition beanDefinition) {
         Field[] fields = clazz.getDeclaredFields();
         if (beanDefinition.getPropertyValues() == null) {
@@ -176,133 +337,40 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
                     beanDefinition.getPropertyValues().add(new PropertyValue(name, value));
                 }
             } else if (field.isAnnotationPresent(Autowired.class)) {
+                boolean lazy = field.isAnnotationPresent(Lazy.class) && field.getAnnotation(Lazy.class).value();
+                //有@Qualifier按它指定的名字引用，否则按字段名
+                String ref = name;
                 if (field.isAnnotationPresent(Qualifier.class)) {
-                    Qualifier qualifier = field.getAnnotation(Qualifier.class);
-                    String ref = qualifier.value();
+                    ref = field.getAnnotation(Qualifier.class).value();
                     if (ref == null || ref.length() == 0) {
                         throw new IllegalArgumentException("the value of Qualifier should not be null!");
                     }
-                    BeanReference beanReference = new BeanReference(ref);
-                    beanDefinition.getPropertyValues().add(new PropertyValue(name, beanReference));
-                } else {
-                    String ref = field.getName();
-                    log.debug("ref信息{}", ref);
-                    BeanReference beanReference = new BeanReference(ref);
-                    beanDefinition.getPropertyValues().add(new PropertyValue(name, beanReference));
                 }
+                log.debug("ref信息{}", ref);
+                beanDefinition.getPropertyValues().add(new PropertyValue(name, new BeanReference(ref, lazy)));
             }
         }
     }
 
     /**
-     * 下面的方法是为了递归查找所有文件里面哪里有注解的 cv大法的
+     * 找出包下所有带@Component或@Controller的类
+     * 先直接解析.class文件，只有带注解的类才会被加载(不初始化)
      *
      * @param packageName
      * @return
      */
     protected Set<Class<?>> getClasses(String packageName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         Set<Class<?>> classes = new LinkedHashSet<>();
-        boolean recursive = true;
-        String packageDirName = packageName.replace('.', '/');
-        Enumeration<URL> dirs;
-        try {
-            dirs = Thread.currentThread().getContextClassLoader().getResources(packageDirName);
-            // 循环迭代下去
-            while (dirs.hasMoreElements()) {
-                // 获取下一个元素
-                URL url = dirs.nextElement();
-                // 得到协议的名称
-                String protocol = url.getProtocol();
-                // 如果是以文件的形式保存在服务器上
-                if ("file".equals(protocol)) {
-                    // 获取包的物理路径
-                    String filePath = URLDecoder.decode(url.getFile(), StandardCharsets.UTF_8);
-                    // 以文件的方式扫描整个包下的文件 并添加到集合中
-                    findAndAddClassesInPackageByFile(packageName, filePath, recursive, classes);
-                } else if ("jar".equals(protocol)) {
-                    // 如果是jar包文件
-                    // 定义一个JarFile
-                    JarFile jar;
-                    try {
-                        // 获取jar
-                        jar = ((JarURLConnection) url.openConnection()).getJarFile();
-                        // 从此jar包 得到一个枚举类
-                        Enumeration<JarEntry> entries = jar.entries();
-                        // 同样的进行循环迭代
-                        while (entries.hasMoreElements()) {
-                            // 获取jar里的一个实体 可以是目录 和一些jar包里的其他文件 如META-INF等文件
-                            JarEntry entry = entries.nextElement();
-                            String name = entry.getName();
-                            // 如果是以/开头的
-                            if (name.charAt(0) == '/') {
-                                // 获取后面的字符串
-                                name = name.substring(1);
-                            }
-                            // 如果前半部分和定义的包名相同
-                            if (name.startsWith(packageDirName)) {
-                                int idx = name.lastIndexOf('/');
-                                // 如果以"/"结尾 是一个包
-                                if (idx != -1) {
-                                    // 获取包名 把"/"替换成"."
-                                    packageName = name.substring(0, idx).replace('/', '.');
-                                }
-                                // 如果可以迭代下去 并且是一个包
-                                // 如果是一个.class文件 而且不是目录
-                                if (name.endsWith(".class") && !entry.isDirectory()) {
-                                    // 去掉后面的".class" 获取真正的类名
-                                    String className = name.substring(packageName.length() + 1, name.length() - 6);
-                                    try {
-                                        // 添加到classes
-                                        classes.add(Class.forName(packageName + '.' + className));
-                                    } catch (ClassNotFoundException e) {
-                                        log.error("添加用户自定义视图类错误 找不到此类的.class文件");
-                                        e.printStackTrace();
-                                    }
-                                }
-                            }
-                        }
-                    } catch (IOException e) {
-                        log.error("在扫描用户定义视图时从jar包获取文件出错");
-                        e.printStackTrace();
-                    }
-                }
+        for (String className : ClassFileScanner.scan(classLoader, packageName, Component.class, Controller.class)) {
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                log.error("添加用户自定义视图类错误 找不到此类的.class文件");
+                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-
         return classes;
     }
 
-    private void findAndAddClassesInPackageByFile(String packageName, String packagePath, final boolean recursive, Set<Class<?>> classes) {
-        // 获取此包的目录 建立一个File
-        File dir = new File(packagePath);
-        // 如果不存在或者 也不是目录就直接返回
-        if (!dir.exists() || !dir.isDirectory()) {
-            log.warn("用户定义包名 " + packageName + " 下没有任何文件");
-            return;
-        }
-        // 如果存在 就获取包下的所有文件 包括目录
-        // 自定义过滤规则 如果可以循环(包含子目录) 或则是以.class结尾的文件(编译好的java类文件)
-        File[] dirFiles = dir.listFiles(file -> (recursive && file.isDirectory()) || (file.getName().endsWith(".class")));
-        // 循环所有文件
-        assert dirFiles != null;
-        for (File file : dirFiles) {
-            // 如果是目录 则继续扫描
-            if (file.isDirectory()) {
-                findAndAddClassesInPackageByFile(packageName + "." + file.getName(), file.getAbsolutePath(), recursive, classes);
-            } else {
-                // 如果是java类文件 去掉后面的.class 只留下类名
-                String className = file.getName().substring(0, file.getName().length() - 6);
-                try {
-                    // 添加到集合中去
-                    classes.add(Thread.currentThread().getContextClassLoader().loadClass(packageName + '.' + className));
-                } catch (ClassNotFoundException e) {
-                    log.error("添加用户自定义视图类错误 找不到此类的.class文件");
-                    e.printStackTrace();
-                }
-            }
-        }
-    }
-
 }
\ No newline at end of file
@@ -3,19 +3,35 @@ package org.spring.web;
 import lombok.extern.slf4j.Slf4j;
 import org.spring.annotation.Controller;
 import org.spring.annotation.RequestMapping;
+import org.spring.context.BeanDefinitionRegistrar;
 import org.spring.context.ClassPathXmlApplicationContext;
-import org.spring.entity.BeanDefinition;
+import org.spring.convert.DataSize;
+import org.spring.env.Environment;
+import org.spring.io.ResourceLoader;
+import org.spring.web.bind.ArgumentBindException;
+import org.spring.web.compress.CompressingResponse;
+import org.spring.web.compress.ResponseCompressor;
+import org.spring.web.metrics.RequestMetrics;
+import org.spring.web.result.ReturnValueHandlers;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
 
 /**
  * @author Wu
@@ -38,35 +54,100 @@ DispatcherServlet 响应用户。
 @Slf4j
 public class DispatcherServlet extends HttpServlet {
 
-    private final Properties properties = new Properties();
+    /**
+     * url路由树，终点是解析好的处理器
+     */
+    private final RouteTrie<HandlerMethod> handlerMapping = new RouteTrie<>();
 
-    private final List<String> classNames = new ArrayList<>();
+    private ClassPathXmlApplicationContext xmlApplicationContext;
 
     /**
-     * url对应的方法
+     * 异步模式 none: 全部同步 annotated: 只有@RequestMapping(async = true)异步 all: 全部异步
      */
-    private final Map<String, Method> handlerMapping = new HashMap<>();
+    private String asyncMode = ASYNC_ANNOTATED;
 
-    private final HashSet<Class<?>> classes = new HashSet<>();
+    private long asyncTimeout = 30000;
+
+    private ExecutorService asyncExecutor;
 
     /**
-     * url对应的controller
+     * 路由没有匹配时尝试静态资源
      */
-    private final Map<String, Object> controllerMap = new HashMap<>();
+    private StaticResourceHandler staticResourceHandler;
 
-    private ClassPathXmlApplicationContext xmlApplicationContext;
+    /**
+     * 请求体(@RequestBody)最多读多少字节，超过返回413
+     */
+    private long maxBodySize = 1024 * 1024;
 
+    /**
+     * 处理器响应的压缩，关闭时为null
+     */
+    private ResponseCompressor responseCompressor;
+
+    /**
+     * 每个路由的请求数、错误数和延迟
+     */
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
+    /**
+     * 内置的Prometheus指标地址，没有路由匹配时才生效，配置成空串关闭
+     */
+    private String metricsPath = "/metrics";
+
+    private static final String ASYNC_NONE = "none";
+    private static final String ASYNC_ANNOTATED = "annotated";
+    private static final String ASYNC_ALL = "all";
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 200;
+
+    /**
+     * 上下文创建失败或者url映射冲突时抛出ServletException，让容器知道这个servlet不可用，而不是带着空路由继续运行
+     */
     @Override
-    public void init(ServletConfig config) {
+    public void init(ServletConfig config) throws ServletException {
+        long start = System.nanoTime();
+        initAsync(config);
+        initStaticResources(config);
+        initCompression(config);
+        String metricsPath = config.getInitParameter("metricsPath");
+        if (metricsPath != null) {
+            this.metricsPath = metricsPath.isBlank() ? null : metricsPath.trim();
+        }
+        String maxBodySize = config.getInitParameter("maxBodySize");
+        if (maxBodySize != null && !maxBodySize.isBlank()) {
+            this.maxBodySize = DataSize.parse(maxBodySize.trim()).toBytes();
+        }
+        //web.xml里的contextConfigLocation和默认配置文件一起作为配置来源，前面的优先
+        Environment environment = Environment.standard(config.getInitParameter("contextConfigLocation"),
+                ClassPathXmlApplicationContext.DEFAULT_PROPERTIES_LOCATION);
+        String scanPackage = environment.getProperty("scanPackage");
         try {
-            xmlApplicationContext = new ClassPathXmlApplicationContext("application.xml");
+            //web层作为注册阶段接入上下文刷新，controller和其他bean共用一次扫描、一起创建
+            xmlApplicationContext = new ClassPathXmlApplicationContext("application.xml", environment,
+                    BeanDefinitionRegistrar.scan(scanPackage));
         } catch (Exception e) {
-            e.printStackTrace();
+            destroy();
+            throw new ServletException("创建上下文失败", e);
+        }
+        try {
+            initHandlerMapping(scanPackage);
+        } catch (Exception e) {
+            destroy();
+            throw new ServletException("注册url映射失败", e);
+        }
+        //metricsJmx=false时不注册MXBean
+        if (!"false".equalsIgnoreCase(config.getInitParameter("metricsJmx"))) {
+            requestMetrics.registerMBeans(config.getServletName());
+        }
+        log.info("DispatcherServlet初始化完成，{}个url映射，耗时{}ms", handlerMapping.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void destroy() {
+        requestMetrics.unregisterMBeans();
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
         }
-        doLoadConfig(config.getInitParameter("contextConfigLocation"));
-        doScanner(properties.getProperty("scanPackage"));
-        doInstance();
-        initHandlerMapping();
     }
 
     @Override
@@ -80,154 +161,443 @@ public class DispatcherServlet extends HttpServlet {
             //处理请求
             doDispatch(req, resp);
         } catch (Exception e) {
+            processException(resp, e);
+        }
+    }
+
+    private void processException(HttpServletResponse resp, Throwable e) {
+        if (!(e instanceof ArgumentBindException)) {
+            log.error("处理请求出错", e);
+        }
+        if (resp.isCommitted()) {
+            log.warn("响应已经提交，无法写出错误: {}", e.toString());
+            return;
+        }
+        try {
+            resp.setContentType("text/plain;charset=UTF-8");
+            resp.setHeader("X-Content-Type-Options", "nosniff");
+            if (e instanceof ArgumentBindException bindException) {
+                resp.setStatus(bindException.getStatus());
+                resp.getWriter().write(bindException.getStatus() + "!! " + errorMessage(e.getMessage()));
+                return;
+            }
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             resp.getWriter().write("500!! Server Exception");
+        } catch (IOException | IllegalStateException ex) {
+            log.warn("写出错误响应失败: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 绑定错误的信息写回客户端前截断并去掉控制字符
+     */
+    static String errorMessage(String message) {
+        if (message == null) {
+            return "Bad Request";
+        }
+        int length = Math.min(message.length(), MAX_ERROR_MESSAGE_LENGTH);
+        StringBuilder builder = new StringBuilder(length + 3);
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            builder.append(Character.isISOControl(c) ? '?' : c);
+        }
+        if (length < message.length()) {
+            builder.append("...");
         }
+        return builder.toString();
     }
 
     public void doDispatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
-        if (handlerMapping.isEmpty()) return;
+        long start = System.nanoTime();
         String url = request.getRequestURI();
         String contextPath = request.getContextPath();
-        url = url.replace(contextPath, "").replaceAll("/+", "/");
-        if (!handlerMapping.containsKey(url)) {
-            response.getWriter().write("404 NOT FOUND!");
+        //跳过contextPath，多余的/在匹配时处理
+        int from = contextPath != null && url.startsWith(contextPath) ? contextPath.length() : 0;
+        RouteTrie.RouteMatch<HandlerMethod> match = handlerMapping.isEmpty() ? null : handlerMapping.match(url, from);
+        if (match == null) {
+            handleUnmatched(request, response, url.substring(from));
+            requestMetrics.getUnmatched().record(System.nanoTime() - start, response.getStatus() >= 500);
             return;
         }
-        //获取到那个方法
-        Method method = handlerMapping.get(url);
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        Map<String, String[]> parameterMap = request.getParameterMap();
-        Object[] paramValues = new Object[parameterTypes.length];
-        for (int i = 0; i < parameterTypes.length; i++) {
-            String requestParam = parameterTypes[i].getSimpleName();
-            if (requestParam.equals("HttpServletRequest")) {
-                paramValues[i] = request;
-                continue;
-            }
-            if (requestParam.equals("HttpServletResponse")) {
-                paramValues[i] = response;
-                continue;
-            }
-            if (requestParam.equals("String")) {
-                for (Map.Entry<String, String[]> param : parameterMap.entrySet()) {
-                    String value = Arrays.toString(param.getValue()).replaceAll("[\\[\\]]", "").replaceAll(",\\s", ",");
-                    paramValues[i] = value;
-                }
-            }
+        HandlerMethod handler = match.getHandler();
+        CompressingResponse compressing = responseCompressor != null && handler.isCompress()
+                ? responseCompressor.wrap(request, response) : null;
+        if (compressing == null) {
+            dispatch(handler, match.getVariables(), request, response, start);
+            return;
         }
-        try {
-            method.invoke(controllerMap.get(url), paramValues);
-        } catch (Exception e) {
-            e.printStackTrace();
+        dispatch(handler, match.getVariables(), request, compressing, start);
+        //异步请求在完成前自己结束压缩
+        if (!request.isAsyncStarted()) {
+            compressing.finish();
         }
     }
 
     /**
-     * 加载web环境
-     *
-     * @param location 路径
+     * 路由没有匹配时依次尝试内置的指标地址和静态资源
      */
-    private void doLoadConfig(String location) {
-        //把web.xml中的contextConfigLocation对应value值的文件加载到流里面
-        InputStream resourceAsStream = this.getClass().getClassLoader().getResourceAsStream(location);
+    private void handleUnmatched(HttpServletRequest request, HttpServletResponse response, String path) throws Exception {
+        if (metricsPath != null && metricsPath.equals(path)) {
+            StringBuilder text = new StringBuilder(4096);
+            requestMetrics.writePrometheus(text);
+            response.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+            ReturnValueHandlers.forValue(text).handle(text, response);
+            return;
+        }
+        if (staticResourceHandler != null && staticResourceHandler.handle(request, response, path)) {
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        response.getWriter().write("404 NOT FOUND!");
+    }
 
+    /**
+     * @param start 收到请求的时间，请求结束时算出耗时记到路由的统计里
+     */
+    private void dispatch(HandlerMethod handler, String[] pathVariables, HttpServletRequest request, HttpServletResponse response, long start) {
+        if (handler.isAsync() && request.isAsyncSupported()) {
+            dispatchAsync(handler, pathVariables, request, response, start);
+            return;
+        }
+        handle(handler, pathVariables, request, response, null, start);
+    }
+
+    /**
+     * 依次执行拦截器的preHandle、处理器、postHandle、写返回值、afterCompletion
+     * 拦截器数组是启动时按路由展开好的，这里只按下标遍历，不分配对象
+     * <p>
+     * 异步执行时写结果前要先抢到 {@link AsyncRequest#claim()}，超时已经抢先结束请求的话不再写也不再complete
+     *
+     * @param asyncRequest 已经开始的异步请求，同步执行时为null
+     */
+    private void handle(HandlerMethod handler, String[] pathVariables, HttpServletRequest request, HttpServletResponse response,
+                        AsyncRequest asyncRequest, long start) {
+        HandlerInterceptor[] interceptors = handler.getInterceptors();
+        //preHandle返回true的拦截器个数，只有这些会收到afterCompletion
+        int passed = 0;
+        Exception failure = null;
+        //是否由这一方写结果并结束请求，同步执行时总是
+        boolean owner = asyncRequest == null;
         try {
-            //用Properties文件加载文件里的内容
-            properties.load(resourceAsStream);
-        } catch (IOException e) {
-            log.info("加载web.xml文件失败");
-            e.printStackTrace();
-        } finally {
-            if (null != resourceAsStream) {
-                try {
-                    resourceAsStream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+            while (passed < interceptors.length && interceptors[passed].preHandle(request, response, handler)) {
+                passed++;
+            }
+            if (passed == interceptors.length) {
+                Object result = invokeHandler(handler, pathVariables, request, response);
+                if (result instanceof CompletionStage<?> stage) {
+                    //处理器返回future时不阻塞容器线程，完成后再结束请求
+                    if (asyncRequest == null && request.isAsyncSupported()) {
+                        asyncRequest = startAsync(handler, request, response, start);
+                    }
+                    if (asyncRequest != null) {
+                        completeWhenDone(handler, stage, asyncRequest, request, response, start);
+                        return;
+                    }
+                    result = awaitResult(stage);
+                    applyPostHandle(handler, request, response, result);
+                    writeAsyncResult(result, response);
+                } else if (owner || (owner = asyncRequest.claim())) {
+                    applyPostHandle(handler, request, response, result);
+                    handler.handleReturnValue(result, response);
                 }
             }
+        } catch (Exception e) {
+            failure = e;
+            if (owner || (owner = asyncRequest.claim())) {
+                processException(response, e);
+            }
+        }
+        if (!owner && !(owner = asyncRequest.claim())) {
+            //超时一方已经写了响应、记了耗时并结束请求，这里只让拦截器收尾
+            triggerAfterCompletion(handler, passed, request, response, failure);
+            return;
+        }
+        finishRequest(handler, passed, request, response, failure, start);
+        if (asyncRequest != null) {
+            complete(asyncRequest, response);
         }
     }
 
     /**
-     * 查询所有的class文件目的看有没有controller注解
-     *
-     * @param packageName
-     */
-    private void doScanner(String packageName) {
-        //把所有的.替换成/
-        URL url = this.getClass().getClassLoader().getResource("/" + packageName.replaceAll("\\.", "/"));
-        assert url != null;
-        File dir = new File(url.getFile());
-        for (File file : Objects.requireNonNull(dir.listFiles())) {
-            if (file.isDirectory()) {
-                //递归读取包
-                doScanner(packageName + "." + file.getName());
-            } else {
-                String className = packageName + "." + file.getName().replace(".class", "");
-                classNames.add(className);
+     * 请求处理完：回调拦截器的afterCompletion，记录耗时，5xx算作错误
+     */
+    private void finishRequest(HandlerMethod handler, int passed, HttpServletRequest request, HttpServletResponse response, Exception failure, long start) {
+        triggerAfterCompletion(handler, passed, request, response, failure);
+        handler.getMetrics().record(System.nanoTime() - start, response.getStatus() >= 500);
+    }
+
+    private void applyPostHandle(HandlerMethod handler, HttpServletRequest request, HttpServletResponse response, Object result) throws Exception {
+        HandlerInterceptor[] interceptors = handler.getInterceptors();
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            interceptors[i].postHandle(request, response, handler, result);
+        }
+    }
+
+    /**
+     * 倒序回调前passed个拦截器，一个出错不影响其他的
+     */
+    private void triggerAfterCompletion(HandlerMethod handler, int passed, HttpServletRequest request, HttpServletResponse response, Exception ex) {
+        HandlerInterceptor[] interceptors = handler.getInterceptors();
+        for (int i = passed - 1; i >= 0; i--) {
+            try {
+                interceptors[i].afterCompletion(request, response, handler, ex);
+            } catch (Exception e) {
+                log.error("拦截器afterCompletion出错 {}", interceptors[i].getClass().getName(), e);
             }
         }
     }
 
+    private Object invokeHandler(HandlerMethod handler, String[] pathVariables, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Object[] paramValues = handler.resolveArguments(request, response, pathVariables);
+        return handler.invoke(paramValues);
+    }
+
     /**
-     * 实例Controller
+     * 把处理器交给异步线程池执行，容器线程立即返回
      */
-    private void doInstance() {
-        if (classNames.isEmpty()) {
-            return;
+    private void dispatchAsync(HandlerMethod handler, String[] pathVariables, HttpServletRequest request, HttpServletResponse response, long start) {
+        AsyncRequest asyncRequest = startAsync(handler, request, response, start);
+        try {
+            asyncExecutor.execute(() -> handle(handler, pathVariables, request, response, asyncRequest, start));
+        } catch (RejectedExecutionException e) {
+            log.warn("异步线程池已满，拒绝请求 {}", handler);
+            if (asyncRequest.claim()) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                handler.getMetrics().record(System.nanoTime() - start, true);
+                complete(asyncRequest, response);
+            }
         }
-        for (String className : classNames) {
+    }
+
+    /**
+     * 结束异步请求，压缩的响应先写完剩余数据。调用前必须已经抢到 {@link AsyncRequest#claim()}
+     */
+    private void complete(AsyncRequest asyncRequest, HttpServletResponse response) {
+        if (response instanceof CompressingResponse compressing) {
             try {
-                //交给Bean工厂来生成Controller单例
-                Class<?> clazz = Class.forName(className);
-                if (clazz.isAnnotationPresent(Controller.class)) {
-                    classes.add(clazz);
-                    BeanDefinition definition = new BeanDefinition();
-                    definition.setSingleton(true);
-                    definition.setBeanClassName(clazz.getName());
-
-                    xmlApplicationContext.addNewBeanDefinition(clazz.getName(), definition);
+                compressing.finish();
+            } catch (IOException e) {
+                log.warn("写出压缩响应失败: {}", e.toString());
+            }
+        }
+        asyncRequest.context.complete();
+    }
+
+    /**
+     * 开始异步处理，超时和出错时由监听器结束请求。
+     * 处理线程和监听器谁先抢到claim谁写响应，另一方什么都不写，也不调用complete
+     */
+    private AsyncRequest startAsync(HandlerMethod handler, HttpServletRequest request, HttpServletResponse response, long start) {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(asyncTimeout);
+        AsyncRequest asyncRequest = new AsyncRequest(asyncContext);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (!asyncRequest.claim()) {
+                    //处理线程已经在写结果，由它结束请求
+                    return;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                log.warn("异步请求超时 {}", request.getRequestURI());
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                }
+                handler.getMetrics().record(System.nanoTime() - start, true);
+                complete(asyncRequest, response);
             }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                //连接出错(比如客户端断开)，不让处理线程再写
+                if (asyncRequest.claim()) {
+                    log.debug("异步请求出错 {}: {}", request.getRequestURI(), String.valueOf(event.getThrowable()));
+                    handler.getMetrics().record(System.nanoTime() - start, true);
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        return asyncRequest;
+    }
+
+    private void completeWhenDone(HandlerMethod handler, CompletionStage<?> stage, AsyncRequest asyncRequest,
+                                  HttpServletRequest request, HttpServletResponse response, long start) {
+        stage.whenComplete((value, ex) -> {
+            Throwable cause = ex == null ? null : unwrap(ex);
+            Exception failure = cause == null || cause instanceof Exception ? (Exception) cause : new CompletionException(cause);
+            if (!asyncRequest.claim()) {
+                //已经超时结束了
+                triggerAfterCompletion(handler, handler.getInterceptors().length, request, response, failure);
+                return;
+            }
+            if (cause != null) {
+                processException(response, cause);
+            } else {
+                try {
+                    applyPostHandle(handler, request, response, value);
+                    writeAsyncResult(value, response);
+                } catch (Exception e) {
+                    failure = e;
+                    processException(response, e);
+                }
+            }
+            finishRequest(handler, handler.getInterceptors().length, request, response, failure, start);
+            complete(asyncRequest, response);
+        });
+    }
+
+    /**
+     * future的结果类型只有运行时才知道，按实际类型选返回值处理器
+     */
+    private void writeAsyncResult(Object value, HttpServletResponse response) throws Exception {
+        if (value != null) {
+            ReturnValueHandlers.forValue(value).handle(value, response);
         }
-        log.debug("让我看看有什么Controller{}", classes);
+    }
+
+    /**
+     * 容器不支持异步时只能阻塞等待
+     */
+    private Object awaitResult(CompletionStage<?> stage) throws Exception {
         try {
-            //工厂干活把新的bean弄出来
-            xmlApplicationContext.refreshBeanFactory();
-        } catch (Exception e) {
-            e.printStackTrace();
+            return stage.toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    private void initAsync(ServletConfig config) {
+        String mode = config.getInitParameter("asyncMode");
+        if (mode != null && !mode.isBlank()) {
+            asyncMode = mode.trim();
+        }
+        String timeout = config.getInitParameter("asyncTimeout");
+        if (timeout != null && !timeout.isBlank()) {
+            asyncTimeout = Long.parseLong(timeout.trim());
+        }
+        if (ASYNC_NONE.equals(asyncMode)) {
+            return;
         }
+        String poolSize = config.getInitParameter("asyncPoolSize");
+        asyncExecutor = HandlerExecutors.create(config.getInitParameter("asyncExecutor"),
+                poolSize == null || poolSize.isBlank() ? 200 : Integer.parseInt(poolSize.trim()));
+    }
+
+    /**
+     * 静态资源映射，默认 /static/ 对应 classpath:static/，配置成空串关闭
+     */
+    private void initStaticResources(ServletConfig config) {
+        String mappings = config.getInitParameter("staticMappings");
+        if (mappings == null) {
+            mappings = "/static/=classpath:static/";
+        }
+        String cacheSize = config.getInitParameter("staticCacheSize");
+        StaticResourceHandler handler = new StaticResourceHandler(StaticResourceHandler.parseMappings(mappings), new ResourceLoader(),
+                config.getServletContext()::getMimeType,
+                cacheSize == null || cacheSize.isBlank() ? 16 * 1024 * 1024 : DataSize.parse(cacheSize.trim()).toBytes());
+        staticResourceHandler = handler.isEmpty() ? null : handler;
+    }
+
+    /**
+     * 响应压缩，默认打开，compression=off关闭；响应体达到compressionThreshold(默认1KB)才压缩
+     */
+    private void initCompression(ServletConfig config) {
+        String compression = config.getInitParameter("compression");
+        if (compression != null && ("off".equalsIgnoreCase(compression.trim()) || "false".equalsIgnoreCase(compression.trim()))) {
+            return;
+        }
+        String threshold = config.getInitParameter("compressionThreshold");
+        String level = config.getInitParameter("compressionLevel");
+        responseCompressor = new ResponseCompressor(
+                threshold == null || threshold.isBlank() ? 1024 : (int) DataSize.parse(threshold.trim()).toBytes(),
+                level == null || level.isBlank() ? Deflater.DEFAULT_COMPRESSION : Integer.parseInt(level.trim()));
+    }
+
+    /**
+     * 容器里所有HandlerInterceptor类型的bean
+     */
+    private HandlerInterceptors loadInterceptors() throws Exception {
+        List<HandlerInterceptor> interceptors = new ArrayList<>();
+        for (String name : xmlApplicationContext.getBeanNamesForType(HandlerInterceptor.class)) {
+            interceptors.add((HandlerInterceptor) xmlApplicationContext.getBean(name));
+        }
+        if (!interceptors.isEmpty()) {
+            log.info("{}个拦截器", interceptors.size());
+        }
+        return new HandlerInterceptors(interceptors);
     }
 
     /**
      * 弄出url对应的方法
      * 和url对应的controller
      */
-    private void initHandlerMapping() {
-        if (classes.isEmpty()){
+    private void initHandlerMapping(String scanPackage) throws Exception {
+        String prefix = scanPackage == null || scanPackage.isBlank() ? "" : scanPackage.trim() + ".";
+        List<String> controllerNames = xmlApplicationContext.getBeanNamesForAnnotation(Controller.class);
+        if (controllerNames.isEmpty()) {
             log.debug("没有controller");
             return;
         }
-        try {
-            for (Class<?> clazz : classes) {
-                String baseUrl = "";
-                if (clazz.isAnnotationPresent(RequestMapping.class)) {
-                    baseUrl = clazz.getAnnotation(RequestMapping.class).value();
-                }
-                Method[] methods = clazz.getMethods();
-                for (Method method : methods) {
-                    if (!method.isAnnotationPresent(RequestMapping.class)) continue;
-                    String url = method.getAnnotation(RequestMapping.class).value();
-                    url = (baseUrl + "/" + url).replaceAll("/+", "/");
-                    handlerMapping.put(url, method);
-                    controllerMap.put(url, xmlApplicationContext.getBean(clazz));
-                }
+        HandlerInterceptors interceptors = loadInterceptors();
+        for (String controllerName : controllerNames) {
+            Object controller = xmlApplicationContext.getBean(controllerName);
+            Class<?> clazz = controller.getClass();
+            if (!clazz.getName().startsWith(prefix)) continue;
+            String baseUrl = "";
+            boolean compressClass = true;
+            if (clazz.isAnnotationPresent(RequestMapping.class)) {
+                baseUrl = clazz.getAnnotation(RequestMapping.class).value();
+                compressClass = clazz.getAnnotation(RequestMapping.class).compress();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            Method[] methods = clazz.getMethods();
+            for (Method method : methods) {
+                if (!method.isAnnotationPresent(RequestMapping.class)) continue;
+                RequestMapping requestMapping = method.getAnnotation(RequestMapping.class);
+                String url = (baseUrl + "/" + requestMapping.value()).replaceAll("/+", "/");
+                boolean async = ASYNC_ALL.equals(asyncMode) || (ASYNC_ANNOTATED.equals(asyncMode) && requestMapping.async());
+                HandlerMethod handler = new HandlerMethod(controller, method, url, RouteTrie.variableNames(url), async,
+                        compressClass && requestMapping.compress(), maxBodySize, interceptors.forUrl(url),
+                        requestMetrics.register(url));
+                //重复的映射由RouteTrie抛出IllegalStateException，启动直接失败
+                handlerMapping.insert(url, handler);
+                log.debug("注册url映射 {}", handler);
+            }
+        }
+    }
+
+    /**
+     * 一个异步请求的结束权：处理线程、future回调、超时和出错监听器只有一方能写结果并调用complete
+     */
+    private static final class AsyncRequest {
+        private final AsyncContext context;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        AsyncRequest(AsyncContext context) {
+            this.context = context;
+        }
+
+        /**
+         * @return 第一次调用返回true，之后都是false
+         */
+        boolean claim() {
+            return finished.compareAndSet(false, true);
         }
     }
 
-}
\ No newline at end of file
+}
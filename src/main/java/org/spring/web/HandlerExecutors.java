@@ -0,0 +1,67 @@
+package org.spring.web;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步处理器的执行线程池
+ * <p>
+ * virtual: 每个任务一个虚拟线程，需要Java 21，低版本运行时自动退回pool
+ * pool: 固定大小的线程池，队列有界，满了直接拒绝
+ */
+@Slf4j
+public final class HandlerExecutors {
+
+    public static final String VIRTUAL = "virtual";
+    public static final String POOL = "pool";
+
+    private HandlerExecutors() {
+    }
+
+    /**
+     * @param kind     virtual 或 pool
+     * @param poolSize pool模式的线程数，队列长度是它的4倍
+     */
+    public static ExecutorService create(String kind, int poolSize) {
+        if (!POOL.equals(kind)) {
+            ExecutorService virtual = virtualThreadPerTask();
+            if (virtual != null) {
+                log.info("异步处理器使用虚拟线程执行");
+                return virtual;
+            }
+            log.info("当前运行时不支持虚拟线程，异步处理器使用大小为{}的线程池", poolSize);
+        }
+        return boundedPool(poolSize);
+    }
+
+    /**
+     * 编译目标是17，所以通过反射拿Java 21的虚拟线程工厂
+     */
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService boundedPool(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "handler-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(poolSize * 4), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,59 @@
+package org.spring.web;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 处理器拦截器，实现这个接口的bean会在启动时按url模式绑定到匹配的路由上
+ * <p>
+ * 执行顺序：preHandle按order从小到大，postHandle和afterCompletion反过来。
+ * 只有preHandle返回true的拦截器才会收到afterCompletion，异步请求在完成时回调
+ */
+public interface HandlerInterceptor {
+
+    /**
+     * 处理器执行前调用
+     *
+     * @return false表示请求已经处理完(比如已经写了响应)，不再往下执行
+     */
+    default boolean preHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handler) throws Exception {
+        return true;
+    }
+
+    /**
+     * 处理器正常返回后、写出返回值前调用，异常时不调用
+     *
+     * @param result 处理器的返回值，返回future时是future的结果
+     */
+    default void postHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handler, Object result) throws Exception {
+    }
+
+    /**
+     * 请求结束后调用，不管成功还是失败
+     *
+     * @param ex 处理过程中的异常，没有异常为null
+     */
+    default void afterCompletion(HttpServletRequest request, HttpServletResponse response, HandlerMethod handler, Exception ex) throws Exception {
+    }
+
+    /**
+     * 拦截哪些url，和@RequestMapping拼出来的url模板匹配，支持 * ** ?，比如 /test/**
+     */
+    default String[] getIncludePatterns() {
+        return new String[]{"/**"};
+    }
+
+    /**
+     * 排除哪些url，优先于include
+     */
+    default String[] getExcludePatterns() {
+        return new String[0];
+    }
+
+    /**
+     * 越小越先执行
+     */
+    default int getOrder() {
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package org.spring.web;
+
+import org.spring.io.ResourceLoader;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 启动时把拦截器按url模式展开成每个路由自己的数组，请求时不再匹配url
+ */
+final class HandlerInterceptors {
+
+    static final HandlerInterceptor[] NONE = new HandlerInterceptor[0];
+
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * @param interceptors 按bean名字排好序的拦截器，order相同时保持这个顺序
+     */
+    HandlerInterceptors(List<HandlerInterceptor> interceptors) {
+        List<HandlerInterceptor> sorted = new ArrayList<>(interceptors);
+        sorted.sort(Comparator.comparingInt(HandlerInterceptor::getOrder));
+        for (HandlerInterceptor interceptor : sorted) {
+            registrations.add(new Registration(interceptor, compile(interceptor.getIncludePatterns()), compile(interceptor.getExcludePatterns())));
+        }
+    }
+
+    /**
+     * @param url 路由的url模板，比如 /test/user/{id}
+     * @return 匹配的拦截器，按执行顺序排列
+     */
+    HandlerInterceptor[] forUrl(String url) {
+        List<HandlerInterceptor> matched = new ArrayList<>();
+        for (Registration registration : registrations) {
+            if (matches(registration.includes, url) && !matches(registration.excludes, url)) {
+                matched.add(registration.interceptor);
+            }
+        }
+        return matched.isEmpty() ? NONE : matched.toArray(new HandlerInterceptor[0]);
+    }
+
+    private static boolean matches(Pattern[] patterns, String url) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern[] compile(String[] patterns) {
+        if (patterns == null) {
+            return new Pattern[0];
+        }
+        Pattern[] compiled = new Pattern[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            compiled[i] = ResourceLoader.compile(patterns[i]);
+        }
+        return compiled;
+    }
+
+    private record Registration(HandlerInterceptor interceptor, Pattern[] includes, Pattern[] excludes) {
+    }
+}
@@ -0,0 +1,82 @@
+package org.spring.web;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 调用处理器方法，启动时为每个方法编译好一次
+ * 默认用绑定了controller单例的MethodHandle，拿不到访问权限时退回反射
+ * 两种实现抛出的都是处理器自己的异常，不会包一层InvocationTargetException
+ */
+public interface HandlerInvoker {
+
+    Object invoke(Object[] args) throws Exception;
+
+    static HandlerInvoker of(Object bean, Method method) {
+        try {
+            return new MethodHandleInvoker(bean, method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            MethodHandleInvoker.log.warn("{} 无法编译成MethodHandle，使用反射调用: {}", method, e.toString());
+            return new ReflectiveInvoker(bean, method);
+        }
+    }
+
+    @Slf4j
+    final class MethodHandleInvoker implements HandlerInvoker {
+        private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+        /**
+         * (Object[])Object 形状，参数展开、装箱、void返回null都在句柄里做好了
+         */
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(Object bean, Method method) throws IllegalAccessException {
+            if (!method.canAccess(bean)) {
+                method.setAccessible(true);
+            }
+            this.handle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(bean)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        }
+
+        @Override
+        public Object invoke(Object[] args) throws Exception {
+            try {
+                return (Object) handle.invokeExact(args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    final class ReflectiveInvoker implements HandlerInvoker {
+        private final Object bean;
+        private final Method method;
+
+        ReflectiveInvoker(Object bean, Method method) {
+            this.bean = bean;
+            this.method = method;
+            method.setAccessible(true);
+        }
+
+        @Override
+        public Object invoke(Object[] args) throws Exception {
+            try {
+                return method.invoke(bean, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+    }
+}
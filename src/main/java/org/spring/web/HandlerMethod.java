@@ -0,0 +1,97 @@
+package org.spring.web;
+
+import lombok.Getter;
+import org.spring.web.bind.ArgumentResolver;
+import org.spring.web.bind.ArgumentResolvers;
+import org.spring.web.metrics.RouteMetrics;
+import org.spring.web.result.ReturnValueHandler;
+import org.spring.web.result.ReturnValueHandlers;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+
+/**
+ * 一个url对应的处理器，启动时解析好，请求时直接用
+ * controller实例 + 方法 + 参数怎么填 + 返回值怎么写
+ */
+@Getter
+public class HandlerMethod {
+
+    private final Object bean;
+    private final Method method;
+    private final String pattern;
+    /**
+     * 预编译好的调用器
+     */
+    private final HandlerInvoker invoker;
+    /**
+     * 参数解析计划，每个参数一个解析器
+     */
+    private final ArgumentResolver[] argumentResolvers;
+    /**
+     * 返回值处理器，void方法为null
+     */
+    private final ReturnValueHandler returnValueHandler;
+    /**
+     * 是否异步执行
+     */
+    private final boolean async;
+    /**
+     * 是否允许压缩响应
+     */
+    private final boolean compress;
+    /**
+     * 启动时按url匹配好的拦截器，按执行顺序排列，没有时是空数组
+     */
+    private final HandlerInterceptor[] interceptors;
+    /**
+     * 这个路由的请求统计
+     */
+    private final RouteMetrics metrics;
+
+    public HandlerMethod(Object bean, Method method, String pattern, String[] pathVariableNames, boolean async, boolean compress,
+                         long maxBodySize, HandlerInterceptor[] interceptors, RouteMetrics metrics) {
+        this.bean = bean;
+        this.method = method;
+        this.pattern = pattern;
+        this.async = async;
+        this.compress = compress;
+        this.interceptors = interceptors;
+        this.metrics = metrics;
+        this.invoker = HandlerInvoker.of(bean, method);
+        this.argumentResolvers = ArgumentResolvers.plan(method, pathVariableNames, maxBodySize);
+        this.returnValueHandler = ReturnValueHandlers.forReturnType(method.getReturnType());
+    }
+
+    /**
+     * 按解析计划填充参数
+     *
+     * @param pathVariables 路由匹配到的路径变量
+     */
+    public Object[] resolveArguments(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) throws Exception {
+        Object[] args = new Object[argumentResolvers.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = argumentResolvers[i].resolve(request, response, pathVariables);
+        }
+        return args;
+    }
+
+    public Object invoke(Object[] args) throws Exception {
+        return invoker.invoke(args);
+    }
+
+    /**
+     * 把返回值写成响应体，null不处理
+     */
+    public void handleReturnValue(Object value, HttpServletResponse response) throws Exception {
+        if (value != null && returnValueHandler != null) {
+            returnValueHandler.handle(value, response);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern + " -> " + method.getDeclaringClass().getSimpleName() + "#" + method.getName() + (async ? " (async)" : "");
+    }
+}
@@ -0,0 +1,315 @@
+package org.spring.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * url路由树，按路径段组织，启动时构建一次，之后只读
+ * <p>
+ * 每一段可以是：
+ * <ul>
+ *     <li>普通字符串 如 test1</li>
+ *     <li>路径变量 如 {id}，匹配任意一段并记录下来</li>
+ *     <li>* 匹配任意一段但不记录</li>
+ *     <li>** 匹配剩下的所有路径，只能放在最后</li>
+ * </ul>
+ * 匹配优先级：普通字符串 &gt; 路径变量 &gt; * &gt; **，匹配失败会回溯。
+ * 匹配时直接在原始uri上按下标走，连续的 / 当成一个，结尾的 / 忽略，不用先做正则替换。
+ *
+ * @param <T> 路由终点保存的对象
+ */
+public class RouteTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * 所有路由里最多的路径变量数，匹配时用来分配下标数组
+     */
+    private int maxVariables;
+
+    private int size;
+
+    /**
+     * 注册一个url模板
+     *
+     * @param pattern url模板
+     * @param value   终点对象
+     */
+    public void insert(String pattern, T value) {
+        List<String> variables = new ArrayList<>();
+        Node<T> node = root;
+        int pos = 0;
+        int end = pattern.length();
+        while (true) {
+            while (pos < end && pattern.charAt(pos) == '/') pos++;
+            if (pos == end) break;
+            int segEnd = segmentEnd(pattern, pos, end);
+            String segment = pattern.substring(pos, segEnd);
+            if (segment.equals("**")) {
+                if (hasMoreSegments(pattern, segEnd, end)) {
+                    throw new IllegalArgumentException("** 只能放在url最后: " + pattern);
+                }
+                if (node.catchAll != null) {
+                    throw new IllegalStateException("重复的url映射: " + pattern);
+                }
+                node.catchAll = new Leaf<>(value, variables.size());
+                finish(variables);
+                return;
+            }
+            if (segment.equals("*")) {
+                if (node.wildcard == null) node.wildcard = new Node<>();
+                node = node.wildcard;
+            } else if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+                variables.add(segment.substring(1, segment.length() - 1));
+                if (node.variable == null) node.variable = new Node<>();
+                node = node.variable;
+            } else {
+                node = node.getOrCreateChild(segment);
+            }
+            pos = segEnd;
+        }
+        if (node.leaf != null) {
+            throw new IllegalStateException("重复的url映射: " + pattern);
+        }
+        node.leaf = new Leaf<>(value, variables.size());
+        finish(variables);
+    }
+
+    private void finish(List<String> variables) {
+        maxVariables = Math.max(maxVariables, variables.size());
+        size++;
+    }
+
+    /**
+     * 解析url模板里路径变量的名字
+     *
+     * @param pattern url模板
+     * @return 名字，顺序和匹配结果里的值一致
+     */
+    public static String[] variableNames(String pattern) {
+        List<String> variables = new ArrayList<>();
+        int pos = 0;
+        int end = pattern.length();
+        while (pos < end) {
+            int segEnd = segmentEnd(pattern, pos, end);
+            if (segEnd - pos > 2 && pattern.charAt(pos) == '{' && pattern.charAt(segEnd - 1) == '}') {
+                variables.add(pattern.substring(pos + 1, segEnd - 1));
+            }
+            pos = segEnd + 1;
+        }
+        return variables.toArray(new String[0]);
+    }
+
+    /**
+     * 匹配uri
+     *
+     * @param path uri
+     * @param from 从哪个下标开始匹配，用来跳过contextPath
+     * @return 匹配结果，没有匹配返回null
+     */
+    public RouteMatch<T> match(String path, int from) {
+        int[] offsets = maxVariables == 0 ? null : new int[maxVariables * 2];
+        Leaf<T> leaf = match(root, path, from, path.length(), offsets, 0);
+        if (leaf == null) return null;
+        if (leaf.variableCount == 0) return leaf.staticMatch;
+        String[] values = new String[leaf.variableCount];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decode(path, offsets[i * 2], offsets[i * 2 + 1]);
+        }
+        return new RouteMatch<>(leaf.value, values);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static <T> Leaf<T> match(Node<T> node, String path, int pos, int end, int[] offsets, int depth) {
+        while (pos < end && path.charAt(pos) == '/') pos++;
+        if (pos == end) {
+            return node.leaf != null ? node.leaf : node.catchAll;
+        }
+        int segEnd = segmentEnd(path, pos, end);
+        Node<T> child = node.findChild(path, pos, segEnd);
+        if (child != null) {
+            Leaf<T> leaf = match(child, path, segEnd, end, offsets, depth);
+            if (leaf != null) return leaf;
+        }
+        if (node.variable != null) {
+            offsets[depth * 2] = pos;
+            offsets[depth * 2 + 1] = segEnd;
+            Leaf<T> leaf = match(node.variable, path, segEnd, end, offsets, depth + 1);
+            if (leaf != null) return leaf;
+        }
+        if (node.wildcard != null) {
+            Leaf<T> leaf = match(node.wildcard, path, segEnd, end, offsets, depth);
+            if (leaf != null) return leaf;
+        }
+        return node.catchAll;
+    }
+
+    /**
+     * 路径变量的值按UTF-8做百分号解码。匹配在解码前进行，%2F不会被当成分隔符；
+     * 不是合法的百分号编码或者UTF-8时原样返回。'+'在路径里不表示空格，不做转换
+     */
+    static String decode(String path, int start, int end) {
+        int percent = path.indexOf('%', start);
+        if (percent < 0 || percent >= end) {
+            return path.substring(start, end);
+        }
+        byte[] bytes = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '%') {
+                int high = i + 2 < end ? Character.digit(path.charAt(i + 1), 16) : -1;
+                int low = high >= 0 ? Character.digit(path.charAt(i + 2), 16) : -1;
+                if (low < 0) {
+                    return path.substring(start, end);
+                }
+                bytes[length++] = (byte) (high << 4 | low);
+                i += 2;
+            } else if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else {
+                //request uri里本来就不该有非ASCII字符，有的话不解码
+                return path.substring(start, end);
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            return decoder.decode(ByteBuffer.wrap(bytes, 0, length)).toString();
+        } catch (CharacterCodingException e) {
+            return path.substring(start, end);
+        }
+    }
+
+    private static int segmentEnd(String path, int pos, int end) {
+        while (pos < end && path.charAt(pos) != '/') pos++;
+        return pos;
+    }
+
+    private static boolean hasMoreSegments(String path, int pos, int end) {
+        while (pos < end) {
+            if (path.charAt(pos++) != '/') return true;
+        }
+        return false;
+    }
+
+    /**
+     * 匹配结果
+     */
+    public static final class RouteMatch<T> {
+        private static final String[] NO_VARIABLES = new String[0];
+
+        private final T handler;
+        private final String[] variables;
+
+        RouteMatch(T handler, String[] variables) {
+            this.handler = handler;
+            this.variables = variables;
+        }
+
+        public T getHandler() {
+            return handler;
+        }
+
+        /**
+         * 路径变量的值(已经做过百分号解码)，顺序和 {@link #variableNames(String)} 一致
+         */
+        public String[] getVariables() {
+            return variables;
+        }
+    }
+
+    private static final class Leaf<T> {
+        final T value;
+        final int variableCount;
+        /**
+         * 没有路径变量的路由每次匹配结果都一样，提前建好
+         */
+        final RouteMatch<T> staticMatch;
+
+        Leaf(T value, int variableCount) {
+            this.value = value;
+            this.variableCount = variableCount;
+            this.staticMatch = variableCount == 0 ? new RouteMatch<>(value, RouteMatch.NO_VARIABLES) : null;
+        }
+    }
+
+    /**
+     * 树节点，普通子节点放在开放寻址的哈希表里，查找时直接对uri的一段算哈希，不用截取子串
+     */
+    private static final class Node<T> {
+        String[] keys = new String[4];
+        @SuppressWarnings("unchecked")
+        Node<T>[] children = new Node[4];
+        int childCount;
+        Node<T> variable;
+        Node<T> wildcard;
+        Leaf<T> leaf;
+        Leaf<T> catchAll;
+
+        Node<T> findChild(String path, int pos, int end) {
+            if (childCount == 0) return null;
+            int len = end - pos;
+            int mask = keys.length - 1;
+            int i = hash(path, pos, end) & mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == len && key.regionMatches(0, path, pos, len)) {
+                    return children[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        Node<T> getOrCreateChild(String segment) {
+            Node<T> child = findChild(segment, 0, segment.length());
+            if (child != null) return child;
+            if ((childCount + 1) * 2 > keys.length) resize();
+            child = new Node<>();
+            put(segment, child);
+            childCount++;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize() {
+            String[] oldKeys = keys;
+            Node<T>[] oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = new Node[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) put(oldKeys[i], oldChildren[i]);
+            }
+        }
+
+        private void put(String key, Node<T> child) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            children[i] = child;
+        }
+
+        private static int hash(String s, int pos, int end) {
+            int h = 0;
+            for (int i = pos; i < end; i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
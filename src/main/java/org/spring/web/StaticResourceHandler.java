@@ -0,0 +1,558 @@
+package org.spring.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.spring.io.FileSystemResource;
+import org.spring.io.Resource;
+import org.spring.io.ResourceLoader;
+import org.spring.web.compress.ContentCoding;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态资源处理器，把url前缀映射到资源位置，比如 /static/ -&gt; classpath:static/
+ * <p>
+ * 支持ETag/Last-Modified和If-None-Match/If-Modified-Since条件请求、单区间Range。
+ * 小文件连同预先压缩好的gzip版本放在按字节数限制的LRU缓存里；
+ * 大文件直接从文件通道发送，Tomcat支持sendfile时交给容器零拷贝发送
+ */
+@Slf4j
+public class StaticResourceHandler {
+
+    /**
+     * 不超过这个大小的文件进缓存
+     */
+    private static final int MAX_CACHED_FILE_SIZE = 64 * 1024;
+
+    /**
+     * 缓存里的文件多久检查一次修改时间
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Map<String, String> DEFAULT_MIME_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html;charset=UTF-8"),
+            Map.entry("htm", "text/html;charset=UTF-8"),
+            Map.entry("css", "text/css;charset=UTF-8"),
+            Map.entry("js", "application/javascript;charset=UTF-8"),
+            Map.entry("json", "application/json;charset=UTF-8"),
+            Map.entry("txt", "text/plain;charset=UTF-8"),
+            Map.entry("xml", "application/xml;charset=UTF-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"));
+
+    /**
+     * 长的前缀在前
+     */
+    private final List<Mapping> mappings;
+    private final ResourceLoader resourceLoader;
+    /**
+     * 容器的mime类型表，找不到时用内置的
+     */
+    private final Function<String, String> mimeTypes;
+    private final long maxCacheBytes;
+
+    private final LinkedHashMap<String, CachedFile> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * @param mappings      url前缀 -&gt; 资源位置
+     * @param maxCacheBytes 小文件缓存的总字节数上限，0表示不缓存
+     */
+    public StaticResourceHandler(Map<String, String> mappings, ResourceLoader resourceLoader,
+                                 Function<String, String> mimeTypes, long maxCacheBytes) {
+        List<Mapping> list = new ArrayList<>();
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String location = withSlash(entry.getValue());
+            list.add(new Mapping(withSlash(entry.getKey()), location, fileRoot(location)));
+        }
+        list.sort((a, b) -> b.prefix.length() - a.prefix.length());
+        this.mappings = List.copyOf(list);
+        this.resourceLoader = resourceLoader;
+        this.mimeTypes = mimeTypes;
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * 解析 "/static/=classpath:static/,/assets/=file:/var/www/" 这种配置
+     */
+    public static Map<String, String> parseMappings(String config) {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (String item : config.split(",")) {
+            int eq = item.indexOf('=');
+            if (eq <= 0) {
+                if (!item.isBlank()) log.warn("忽略格式错误的静态资源映射: {}", item);
+                continue;
+            }
+            mappings.put(item.substring(0, eq).trim(), item.substring(eq + 1).trim());
+        }
+        return mappings;
+    }
+
+    public boolean isEmpty() {
+        return mappings.isEmpty();
+    }
+
+    /**
+     * @param path 去掉contextPath后的路径
+     * @return 路径不在任何前缀下时返回false，交给调用方处理
+     */
+    public boolean handle(HttpServletRequest request, HttpServletResponse response, String path) throws IOException {
+        Mapping mapping = null;
+        for (Mapping candidate : mappings) {
+            if (path.startsWith(candidate.prefix)) {
+                mapping = candidate;
+                break;
+            }
+        }
+        if (mapping == null) {
+            return false;
+        }
+        String method = request.getMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            response.setHeader("Allow", "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return true;
+        }
+        String relative = decode(path.substring(mapping.prefix.length()));
+        if (relative == null || relative.isEmpty() || !isSafe(relative)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return true;
+        }
+        Path file = null;
+        if (mapping.root != null) {
+            file = mapping.resolve(relative);
+            if (file == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return true;
+            }
+        }
+        String location = file != null ? file.toString() : mapping.location + relative;
+        CachedFile cached = getCached(location, file);
+        Resource resource = null;
+        long length;
+        long lastModified;
+        if (cached != null) {
+            length = cached.body.length;
+            lastModified = cached.lastModified;
+        } else {
+            resource = getResource(location, file);
+            if (!resource.exists()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return true;
+            }
+            length = resource.contentLength();
+            //HTTP日期只精确到秒
+            lastModified = resource.lastModified() / 1000 * 1000;
+            if (length >= 0 && length <= MAX_CACHED_FILE_SIZE && maxCacheBytes > 0) {
+                cached = load(location, resource, relative, lastModified);
+            }
+        }
+        //只有整个文件请求时才发预先压缩好的gzip版本，它的ETag和原文不同，条件请求按实际发送的版本比较
+        boolean gzip = cached != null && cached.gzip != null && request.getHeader("Range") == null
+                && ContentCoding.negotiate(request.getHeader("Accept-Encoding"), ContentCoding.GZIP) != null;
+        String etag = cached != null ? (gzip ? cached.gzipEtag : cached.etag) : etag(length, lastModified);
+        String contentType = cached != null ? cached.contentType : contentType(relative);
+
+        response.setHeader("ETag", etag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+        if (cached != null && cached.gzip != null) {
+            response.addHeader("Vary", "Accept-Encoding");
+        }
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        response.setContentType(contentType);
+
+        long[] range = range(request, etag, lastModified, length);
+        if (range == UNSATISFIABLE) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return true;
+        }
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+        }
+        long start = range == null ? 0 : range[0];
+        long count = range == null ? length : range[1] - range[0] + 1;
+
+        if (cached != null) {
+            byte[] body = cached.body;
+            if (gzip) {
+                response.setHeader("Content-Encoding", ContentCoding.GZIP.getToken());
+                body = cached.gzip;
+                count = body.length;
+            }
+            response.setContentLengthLong(count);
+            if (!head) {
+                response.getOutputStream().write(body, (int) start, (int) count);
+            }
+            return true;
+        }
+        if (length >= 0) {
+            response.setContentLengthLong(count);
+        }
+        if (!head) {
+            send(request, response, resource, start, length >= 0 ? count : -1);
+        }
+        return true;
+    }
+
+    /**
+     * 本地文件(包括classpath上目录里的资源)：容器支持sendfile就交给容器，否则用transferTo；其他资源(比如jar里的)按通道复制
+     */
+    private void send(HttpServletRequest request, HttpServletResponse response, Resource resource, long start, long count) throws IOException {
+        Path file = resource.getFilePath();
+        if (file != null && count >= 0 && Files.isRegularFile(file)) {
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + count);
+                return;
+            }
+            ServletOutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = start;
+                long end = start + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) break;
+                    position += sent;
+                }
+            }
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long skipped = 0;
+            long remaining = count < 0 ? Long.MAX_VALUE : count;
+            while (remaining > 0 && channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (skipped < start) {
+                    int skip = (int) Math.min(buffer.remaining(), start - skipped);
+                    buffer.position(buffer.position() + skip);
+                    skipped += skip;
+                }
+                if (buffer.remaining() > remaining) {
+                    buffer.limit(buffer.position() + (int) remaining);
+                }
+                remaining -= buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * 只支持单个区间，多区间或者If-Range不匹配时返回null发送整个文件
+     */
+    private static long[] range(HttpServletRequest request, String etag, long lastModified, long length) {
+        String header = request.getHeader("Range");
+        if (header == null || length < 0 || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long date = -1;
+            try {
+                date = request.getDateHeader("If-Range");
+            } catch (IllegalArgumentException ignored) {
+                //既不是ETag也不是日期
+            }
+            if (date < 0 || lastModified > date) {
+                return null;
+            }
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                //bytes=-N 最后N个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) return UNSATISFIABLE;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+            if (start >= length || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            //有If-None-Match时忽略If-Modified-Since
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return ifModifiedSince >= 0 && lastModified > 0 && lastModified <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * file:映射直接用解析好的路径，不再拼成URL字符串重新解码；其他映射交给ResourceLoader
+     */
+    private Resource getResource(String location, Path file) {
+        return file != null ? new FileSystemResource(file) : resourceLoader.getResource(location);
+    }
+
+    private CachedFile getCached(String location, Path file) {
+        CachedFile cached;
+        synchronized (cache) {
+            cached = cache.get(location);
+        }
+        if (cached == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - cached.checkedAt < CHECK_INTERVAL_MILLIS) {
+            return cached;
+        }
+        //定期确认文件没有变化，变了就丢掉重新加载
+        try {
+            Resource resource = getResource(location, file);
+            if (resource.exists() && resource.lastModified() / 1000 * 1000 == cached.lastModified
+                    && resource.contentLength() == cached.body.length) {
+                cached.checkedAt = now;
+                return cached;
+            }
+        } catch (IOException e) {
+            log.debug("检查静态资源{}失败: {}", location, e.toString());
+        }
+        synchronized (cache) {
+            if (cache.remove(location) == cached) {
+                cachedBytes -= cached.size();
+            }
+        }
+        return null;
+    }
+
+    private CachedFile load(String location, Resource resource, String name, long lastModified) throws IOException {
+        ByteBuffer buffer = resource.getByteBuffer();
+        byte[] body = new byte[buffer.remaining()];
+        buffer.get(body);
+        String contentType = contentType(name);
+        byte[] gzip = null;
+        if (compressible(contentType) && body.length > 256) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 2);
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                out.write(body);
+            }
+            //压缩收益不大时不保留
+            if (bytes.size() < body.length * 9L / 10) {
+                gzip = bytes.toByteArray();
+            }
+        }
+        CachedFile cached = new CachedFile(body, gzip, etag(body.length, lastModified), lastModified, contentType);
+        if (cached.size() > maxCacheBytes) {
+            return cached;
+        }
+        synchronized (cache) {
+            CachedFile old = cache.put(location, cached);
+            if (old != null) {
+                cachedBytes -= old.size();
+            }
+            cachedBytes += cached.size();
+            Iterator<CachedFile> iterator = cache.values().iterator();
+            while (cachedBytes > maxCacheBytes && iterator.hasNext()) {
+                cachedBytes -= iterator.next().size();
+                iterator.remove();
+            }
+        }
+        return cached;
+    }
+
+    private String contentType(String name) {
+        String type = mimeTypes == null ? null : mimeTypes.apply(name);
+        if (type == null) {
+            int dot = name.lastIndexOf('.');
+            type = dot < 0 ? null : DEFAULT_MIME_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        }
+        return type == null ? "application/octet-stream" : type;
+    }
+
+    private static boolean compressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml");
+    }
+
+    private static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static String decode(String path) {
+        try {
+            //路径里的+不是空格，先保护起来
+            return URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 不允许跳出资源目录。解码后还有%说明是多重编码，后面任何一层再解码都可能变出..，直接拒绝
+     */
+    private static boolean isSafe(String path) {
+        if (path.indexOf('%') >= 0 || path.indexOf('\\') >= 0 || path.indexOf('\0') >= 0 || path.startsWith("/") || path.indexOf(':') >= 0) {
+            return false;
+        }
+        for (String segment : path.split("/")) {
+            if (segment.equals("..") || segment.equals(".")) {
+                return false;
+            }
+        }
+        return !path.endsWith("/");
+    }
+
+    private static String withSlash(String s) {
+        return s.endsWith("/") ? s : s + "/";
+    }
+
+    /**
+     * file:位置对应的目录，其他位置返回null
+     */
+    private static Path fileRoot(String location) {
+        if (!location.startsWith(ResourceLoader.FILE_URL_PREFIX)) {
+            return null;
+        }
+        Path root;
+        try {
+            root = Paths.get(new URL(location).toURI());
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            root = Paths.get(location.substring(ResourceLoader.FILE_URL_PREFIX.length()));
+        }
+        return root.toAbsolutePath().normalize();
+    }
+
+    private static final class Mapping {
+        /**
+         * url前缀，以/结尾
+         */
+        private final String prefix;
+        /**
+         * 资源位置，以/结尾
+         */
+        private final String location;
+        /**
+         * file:映射的根目录，其他映射为null
+         */
+        private final Path root;
+
+        Mapping(String prefix, String location, Path root) {
+            this.prefix = prefix;
+            this.location = location;
+            this.root = root;
+        }
+
+        /**
+         * 把已经解码的相对路径解析到根目录下
+         *
+         * @return 路径非法或者跑出了根目录时返回null
+         */
+        Path resolve(String relative) {
+            try {
+                Path file = root.resolve(relative).normalize();
+                return file.startsWith(root) && !file.equals(root) ? file : null;
+            } catch (InvalidPathException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class CachedFile {
+        private final byte[] body;
+        private final byte[] gzip;
+        private final String etag;
+        /**
+         * gzip版本的ETag，和原文的不同，避免缓存把两个版本当成同一个
+         */
+        private final String gzipEtag;
+        private final long lastModified;
+        private final String contentType;
+        private volatile long checkedAt;
+
+        CachedFile(byte[] body, byte[] gzip, String etag, long lastModified, String contentType) {
+            this.body = body;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        long size() {
+            return body.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
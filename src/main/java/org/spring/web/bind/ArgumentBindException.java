@@ -0,0 +1,31 @@
+package org.spring.web.bind;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 请求参数无法绑定到处理器参数，比如类型转换失败，默认对应400
+ */
+public class ArgumentBindException extends RuntimeException {
+
+    /**
+     * 返回给客户端的状态码
+     */
+    private final int status;
+
+    public ArgumentBindException(String message, Throwable cause) {
+        this(HttpServletResponse.SC_BAD_REQUEST, message, cause);
+    }
+
+    public ArgumentBindException(String message) {
+        this(HttpServletResponse.SC_BAD_REQUEST, message, null);
+    }
+
+    public ArgumentBindException(int status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
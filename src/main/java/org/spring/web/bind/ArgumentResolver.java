@@ -0,0 +1,21 @@
+package org.spring.web.bind;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 解析处理器方法的一个参数
+ * 每个参数在启动时确定好一个解析器，请求时按顺序调用填满参数数组
+ */
+@FunctionalInterface
+public interface ArgumentResolver {
+
+    /**
+     * @param request       请求
+     * @param response      响应
+     * @param pathVariables 路由匹配到的路径变量
+     * @return 参数值
+     */
+    Object resolve(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) throws Exception;
+
+}
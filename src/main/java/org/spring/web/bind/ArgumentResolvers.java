@@ -0,0 +1,252 @@
+package org.spring.web.bind;
+
+import org.spring.annotation.PathVariable;
+import org.spring.annotation.RequestBody;
+import org.spring.annotation.RequestParam;
+import org.spring.convert.ConversionService;
+import org.spring.convert.Converter;
+import org.spring.convert.StringConverters;
+import org.spring.web.json.BodyTooLargeException;
+import org.spring.web.json.JsonException;
+import org.spring.web.json.JsonReader;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 为处理器方法生成参数解析计划
+ * <p>
+ * 支持的参数：
+ * <ul>
+ *     <li>HttpServletRequest / HttpServletResponse</li>
+ *     <li>@PathVariable 路径变量</li>
+ *     <li>@RequestParam 请求参数，没有注解时用编译保留的参数名(-parameters)</li>
+ *     <li>@RequestBody 请求体，String和byte[]是原始内容，其他类型用 {@link JsonReader} 边读边绑定</li>
+ * </ul>
+ * 请求参数可以是 {@link ConversionService} 支持从字符串转换的类型，数组按多个同名参数绑定
+ */
+public final class ArgumentResolvers {
+
+    private static final ArgumentResolver REQUEST = (request, response, pathVariables) -> request;
+
+    private static final ArgumentResolver RESPONSE = (request, response, pathVariables) -> response;
+
+    private ArgumentResolvers() {
+    }
+
+    /**
+     * 生成参数解析计划
+     *
+     * @param method            处理器方法
+     * @param pathVariableNames url模板里的路径变量名
+     * @param maxBodySize       请求体最多读多少字节
+     * @return 每个参数一个解析器
+     */
+    public static ArgumentResolver[] plan(Method method, String[] pathVariableNames, long maxBodySize) {
+        Parameter[] parameters = method.getParameters();
+        ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            resolvers[i] = resolverFor(method, parameters[i], pathVariableNames, maxBodySize);
+        }
+        return resolvers;
+    }
+
+    private static ArgumentResolver resolverFor(Method method, Parameter parameter, String[] pathVariableNames, long maxBodySize) {
+        Class<?> type = parameter.getType();
+        if (type == HttpServletRequest.class) {
+            return REQUEST;
+        }
+        if (type == HttpServletResponse.class) {
+            return RESPONSE;
+        }
+        if (parameter.isAnnotationPresent(PathVariable.class)) {
+            String name = parameter.getAnnotation(PathVariable.class).value();
+            int index = indexOf(pathVariableNames, name);
+            if (index < 0) {
+                throw new IllegalArgumentException(method + " 的url里没有路径变量 {" + name + "}");
+            }
+            return new PathVariableResolver(name, index, requireConverter(method, parameter, type));
+        }
+        if (parameter.isAnnotationPresent(RequestBody.class)) {
+            return new RequestBodyResolver(parameter.getParameterizedType(), type,
+                    parameter.getAnnotation(RequestBody.class).required(), maxBodySize);
+        }
+        String name;
+        if (parameter.isAnnotationPresent(RequestParam.class)) {
+            name = parameter.getAnnotation(RequestParam.class).value();
+        } else if (parameter.isNamePresent()) {
+            name = parameter.getName();
+        } else {
+            throw new IllegalArgumentException(method + " 的参数 " + parameter + " 需要@RequestParam指定名字");
+        }
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            return new ArrayParamResolver(name, componentType, requireConverter(method, parameter, componentType));
+        }
+        return new RequestParamResolver(name, requireConverter(method, parameter, type), StringConverters.defaultValue(type));
+    }
+
+    private static Converter<String, Object> requireConverter(Method method, Parameter parameter, Class<?> type) {
+        Converter<String, Object> converter = ConversionService.getSharedInstance().getConverter(String.class, type);
+        if (converter == null) {
+            throw new IllegalArgumentException(method + " 的参数 " + parameter + " 类型不支持绑定: " + type.getName());
+        }
+        return converter;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private static Object convert(Converter<String, Object> converter, String name, String value) {
+        try {
+            return converter.convert(value);
+        } catch (RuntimeException e) {
+            //错误信息会写回客户端，不带上原始值
+            throw new ArgumentBindException("参数 " + name + " 的值无法转换", e);
+        }
+    }
+
+    private static final class PathVariableResolver implements ArgumentResolver {
+        private final String name;
+        private final int index;
+        private final Converter<String, Object> converter;
+
+        PathVariableResolver(String name, int index, Converter<String, Object> converter) {
+            this.name = name;
+            this.index = index;
+            this.converter = converter;
+        }
+
+        @Override
+        public Object resolve(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) {
+            return convert(converter, name, pathVariables[index]);
+        }
+    }
+
+    private static final class RequestParamResolver implements ArgumentResolver {
+        private final String name;
+        private final Converter<String, Object> converter;
+        /**
+         * 请求里没有这个参数时的值，基本类型不能是null
+         */
+        private final Object missingValue;
+
+        RequestParamResolver(String name, Converter<String, Object> converter, Object missingValue) {
+            this.name = name;
+            this.converter = converter;
+            this.missingValue = missingValue;
+        }
+
+        @Override
+        public Object resolve(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) {
+            String[] values = request.getParameterValues(name);
+            if (values == null || values.length == 0) {
+                return missingValue;
+            }
+            //多个值的时候用逗号连起来
+            String value = values.length == 1 ? values[0] : String.join(",", values);
+            return convert(converter, name, value);
+        }
+    }
+
+    private static final class ArrayParamResolver implements ArgumentResolver {
+        private final String name;
+        private final Class<?> componentType;
+        private final Converter<String, Object> converter;
+
+        ArrayParamResolver(String name, Class<?> componentType, Converter<String, Object> converter) {
+            this.name = name;
+            this.componentType = componentType;
+            this.converter = converter;
+        }
+
+        @Override
+        public Object resolve(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) {
+            String[] values = request.getParameterValues(name);
+            if (values == null) {
+                return null;
+            }
+            if (componentType == String.class) {
+                return values.clone();
+            }
+            Object array = Array.newInstance(componentType, values.length);
+            for (int i = 0; i < values.length; i++) {
+                Array.set(array, i, convert(converter, name, values[i]));
+            }
+            return array;
+        }
+    }
+
+    private static final class RequestBodyResolver implements ArgumentResolver {
+        private final Type type;
+        private final Class<?> rawType;
+        private final boolean required;
+        private final long maxBodySize;
+
+        RequestBodyResolver(Type type, Class<?> rawType, boolean required, long maxBodySize) {
+            this.type = type;
+            this.rawType = rawType;
+            this.required = required;
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public Object resolve(HttpServletRequest request, HttpServletResponse response, String[] pathVariables) throws IOException {
+            //声明的长度已经超了就不读了
+            if (request.getContentLengthLong() > maxBodySize) {
+                throw new ArgumentBindException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "请求体超过" + maxBodySize + "字节", null);
+            }
+            Object body;
+            try {
+                InputStream in = request.getInputStream();
+                if (rawType == byte[].class) {
+                    byte[] bytes = readAll(in);
+                    body = bytes.length == 0 ? null : bytes;
+                } else if (rawType == String.class) {
+                    byte[] bytes = readAll(in);
+                    String encoding = request.getCharacterEncoding();
+                    body = bytes.length == 0 ? null : new String(bytes, encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+                } else {
+                    body = JsonReader.read(in, type, maxBodySize);
+                }
+            } catch (BodyTooLargeException e) {
+                throw new ArgumentBindException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage(), e);
+            } catch (JsonException | IllegalArgumentException e) {
+                throw new ArgumentBindException("请求体无法解析: " + e.getMessage(), e);
+            }
+            if (body == null) {
+                if (required) {
+                    throw new ArgumentBindException("缺少请求体");
+                }
+                return StringConverters.defaultValue(rawType);
+            }
+            return body;
+        }
+
+        private byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                if (out.size() + n > maxBodySize) {
+                    throw new BodyTooLargeException(maxBodySize);
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
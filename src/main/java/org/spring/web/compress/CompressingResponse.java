@@ -0,0 +1,349 @@
+package org.spring.web.compress;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 按需压缩的响应包装
+ * <p>
+ * 处理器先声明了Content-Length时(返回值处理器都是这样)立刻决定是否压缩，不额外缓冲；
+ * 长度未知时先缓冲到阈值，超过阈值开始压缩，到结束都没超过就原样输出并补上Content-Length。
+ * 压缩时忽略处理器设置的Content-Length，请求结束时必须调用 {@link #finish()}
+ */
+public class CompressingResponse extends HttpServletResponseWrapper {
+
+    private static final int UNDECIDED = 0;
+    private static final int IDENTITY = 1;
+    private static final int COMPRESSING = 2;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final ContentCoding coding;
+    private final int threshold;
+    private final DeflaterPool deflaterPool;
+
+    private int state = UNDECIDED;
+    /**
+     * 还没决定时缓冲的内容
+     */
+    private byte[] pending;
+    private int pendingSize;
+    /**
+     * 处理器声明的长度，-1为未知
+     */
+    private long declaredLength = -1;
+    private boolean finished;
+    /**
+     * finish()已经完成，之后的写入都拒绝
+     */
+    private boolean closed;
+
+    private Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private byte[] output;
+
+    private final CompressingOutputStream stream = new CompressingOutputStream();
+    private PrintWriter writer;
+
+    CompressingResponse(HttpServletResponse response, ContentCoding coding, int threshold, DeflaterPool deflaterPool) {
+        super(response);
+        this.coding = coding;
+        this.threshold = threshold;
+        this.deflaterPool = deflaterPool;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (state == COMPRESSING) {
+            return;
+        }
+        if (state == IDENTITY) {
+            super.setContentLengthLong(length);
+            return;
+        }
+        declaredLength = length;
+        //还没写内容就知道长度了，直接决定
+        if (pendingSize == 0) {
+            try {
+                decide(length >= threshold, false);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (state == UNDECIDED && !finished) {
+            //主动flush说明要边写边发，来不及等到阈值
+            decide(false, false);
+        }
+        flushStream();
+        super.flushBuffer();
+    }
+
+    /**
+     * 输出流的flush：还在缓冲时什么都不做，压缩时把已有数据同步刷出去
+     */
+    private synchronized void flushStream() throws IOException {
+        if (state == UNDECIDED || finished) {
+            return;
+        }
+        if (state == COMPRESSING) {
+            int n;
+            do {
+                n = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                super.getOutputStream().write(output, 0, n);
+            } while (n == output.length);
+        }
+        super.getOutputStream().flush();
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        super.resetBuffer();
+        pendingSize = 0;
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        pendingSize = 0;
+        declaredLength = -1;
+        releaseDeflater();
+        state = UNDECIDED;
+    }
+
+    /**
+     * 输出缓冲的内容，压缩时写出剩余数据和gzip尾，可以重复调用
+     */
+    public synchronized void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        //先标记结束，writer.flush()传到输出流时不再触发同步刷新
+        finished = true;
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (state == UNDECIDED) {
+                decide(false, true);
+            }
+            if (state == COMPRESSING) {
+                deflater.finish();
+                ServletOutputStream out = super.getOutputStream();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(output);
+                    out.write(output, 0, n);
+                }
+                if (coding == ContentCoding.GZIP) {
+                    byte[] trailer = new byte[8];
+                    writeIntLe(trailer, 0, (int) crc.getValue());
+                    writeIntLe(trailer, 4, (int) deflater.getBytesRead());
+                    super.getOutputStream().write(trailer);
+                }
+            }
+        } finally {
+            closed = true;
+            releaseDeflater();
+        }
+    }
+
+    /**
+     * @param large    内容是否达到阈值
+     * @param complete 内容是否已经全部写完，写完了才能用缓冲的大小作为Content-Length
+     */
+    private void decide(boolean large, boolean complete) throws IOException {
+        if (large && shouldCompress()) {
+            state = COMPRESSING;
+            super.setHeader("Content-Encoding", coding.getToken());
+            super.addHeader("Vary", "Accept-Encoding");
+            deflater = deflaterPool.acquire(coding.isNowrap());
+            output = new byte[8192];
+            crc.reset();
+            if (coding == ContentCoding.GZIP) {
+                super.getOutputStream().write(GZIP_HEADER);
+            }
+        } else {
+            state = IDENTITY;
+            if (declaredLength >= 0) {
+                super.setContentLengthLong(declaredLength);
+            } else if (complete && !isCommitted()) {
+                super.setContentLengthLong(pendingSize);
+            }
+        }
+        if (pendingSize > 0) {
+            int size = pendingSize;
+            pendingSize = 0;
+            writeDecided(pending, 0, size);
+        }
+        pending = null;
+    }
+
+    private boolean shouldCompress() {
+        int status = getStatus();
+        if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status == SC_PARTIAL_CONTENT
+                || getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        String contentType = getContentType();
+        //没有Content-Type但是用Writer输出的按文本处理
+        return contentType == null ? writer != null : ResponseCompressor.compressible(contentType);
+    }
+
+    private synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        //finish()之后Deflater已经归还，底层响应也可能已经被容器回收
+        if (closed) {
+            throw new IOException("响应已经结束，不能继续写入");
+        }
+        if (state != UNDECIDED) {
+            writeDecided(bytes, offset, length);
+            return;
+        }
+        if (pendingSize + length < threshold) {
+            if (pending == null) {
+                pending = new byte[Math.max(threshold, 16)];
+            }
+            System.arraycopy(bytes, offset, pending, pendingSize, length);
+            pendingSize += length;
+            return;
+        }
+        decide(true, false);
+        writeDecided(bytes, offset, length);
+    }
+
+    private void writeDecided(byte[] bytes, int offset, int length) throws IOException {
+        if (state == IDENTITY) {
+            super.getOutputStream().write(bytes, offset, length);
+            return;
+        }
+        if (coding == ContentCoding.GZIP) {
+            crc.update(bytes, offset, length);
+        }
+        deflater.setInput(bytes, offset, length);
+        ServletOutputStream out = super.getOutputStream();
+        while (!deflater.needsInput()) {
+            int n = deflater.deflate(output);
+            if (n > 0) {
+                out.write(output, 0, n);
+            }
+        }
+    }
+
+    private void releaseDeflater() {
+        if (deflater != null) {
+            deflaterPool.release(deflater, coding.isNowrap());
+            deflater = null;
+        }
+    }
+
+    private static void writeIntLe(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+
+    private final class CompressingOutputStream extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            CompressingResponse.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            CompressingResponse.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushStream();
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return CompressingResponse.super.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                CompressingResponse.super.getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
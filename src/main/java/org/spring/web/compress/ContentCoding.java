@@ -0,0 +1,103 @@
+package org.spring.web.compress;
+
+import java.util.Locale;
+
+/**
+ * 支持的响应压缩编码
+ */
+public enum ContentCoding {
+    /**
+     * gzip格式：deflate数据加上10字节头和CRC32、长度的尾
+     */
+    GZIP("gzip", true),
+    /**
+     * HTTP里的deflate实际是zlib格式
+     */
+    DEFLATE("deflate", false);
+
+    private final String token;
+    /**
+     * Deflater是否不输出zlib头尾
+     */
+    private final boolean nowrap;
+
+    ContentCoding(String token, boolean nowrap) {
+        this.token = token;
+        this.nowrap = nowrap;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    boolean isNowrap() {
+        return nowrap;
+    }
+
+    private static final ContentCoding[] ALL = values();
+
+    /**
+     * 按Accept-Encoding的q值选编码，q相同时优先gzip
+     *
+     * @param acceptEncoding 请求头，可以为null
+     * @return 客户端都不接受时返回null
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        return negotiate(acceptEncoding, ALL);
+    }
+
+    /**
+     * 只在服务端能提供的编码里选，比如只有预先压缩好的gzip版本时传GZIP
+     *
+     * @param acceptEncoding 请求头，可以为null
+     * @param available      服务端能提供的编码，q相同时靠前的优先
+     * @return 客户端都不接受时返回null
+     */
+    public static ContentCoding negotiate(String acceptEncoding, ContentCoding... available) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            int semicolon = part.indexOf(';');
+            String coding = (semicolon < 0 ? part : part.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+            double q = semicolon < 0 ? 1 : quality(part.substring(semicolon + 1));
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, q);
+                case "deflate" -> deflate = Math.max(deflate, q);
+                case "*" -> any = q;
+                default -> {
+                }
+            }
+        }
+        //没有单独列出的编码按*的q值算
+        if (gzip < 0) gzip = Math.max(any, 0);
+        if (deflate < 0) deflate = Math.max(any, 0);
+        ContentCoding best = null;
+        double bestQuality = 0;
+        for (ContentCoding coding : available) {
+            double q = coding == GZIP ? gzip : deflate;
+            if (q > bestQuality) {
+                best = coding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,45 @@
+package org.spring.web.compress;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * 所有线程共享的有界Deflater池(两种格式各一个)，避免每个响应都分配和释放native内存
+ * <p>
+ * 不按线程缓存：处理器可能跑在虚拟线程上，线程用完即弃，ThreadLocal里的Deflater永远等不到复用。
+ * 池空时新建，归还时池满就直接end()，池里最多只留capacity个
+ */
+final class DeflaterPool {
+
+    private final int level;
+
+    private final ArrayBlockingQueue<Deflater> wrapped;
+
+    private final ArrayBlockingQueue<Deflater> nowrap;
+
+    DeflaterPool(int level) {
+        this(level, Math.max(Runtime.getRuntime().availableProcessors() * 2, 4));
+    }
+
+    DeflaterPool(int level, int capacity) {
+        this.level = level;
+        this.wrapped = new ArrayBlockingQueue<>(capacity);
+        this.nowrap = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Deflater acquire(boolean nowrap) {
+        Deflater deflater = queue(nowrap).poll();
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!queue(nowrap).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private ArrayBlockingQueue<Deflater> queue(boolean nowrap) {
+        return nowrap ? this.nowrap : wrapped;
+    }
+}
@@ -0,0 +1,45 @@
+package org.spring.web.compress;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 响应压缩配置，按请求协商编码并包装响应
+ * <p>
+ * 响应体达到阈值、Content-Type是文本类(或者通过Writer输出)、处理器没有自己设置Content-Encoding时才压缩
+ */
+public class ResponseCompressor {
+
+    private final int threshold;
+
+    private final DeflaterPool deflaterPool;
+
+    /**
+     * @param threshold 响应体至少多少字节才压缩
+     * @param level     压缩级别 0-9，-1为默认
+     */
+    public ResponseCompressor(int threshold, int level) {
+        this.threshold = Math.max(threshold, 0);
+        this.deflaterPool = new DeflaterPool(level);
+    }
+
+    /**
+     * @return 客户端不接受压缩或者是HEAD请求时返回null，直接用原响应
+     */
+    public CompressingResponse wrap(HttpServletRequest request, HttpServletResponse response) {
+        if ("HEAD".equals(request.getMethod())) {
+            return null;
+        }
+        ContentCoding coding = ContentCoding.negotiate(request.getHeader("Accept-Encoding"));
+        if (coding == null) {
+            return null;
+        }
+        return new CompressingResponse(response, coding, threshold, deflaterPool);
+    }
+
+    static boolean compressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml") || contentType.contains("+json") || contentType.contains("+xml");
+    }
+}
@@ -0,0 +1,13 @@
+package org.spring.web.json;
+
+import java.io.IOException;
+
+/**
+ * 请求体超过允许的大小
+ */
+public class BodyTooLargeException extends IOException {
+
+    public BodyTooLargeException(long maxBytes) {
+        super("请求体超过" + maxBytes + "字节");
+    }
+}
@@ -0,0 +1,15 @@
+package org.spring.web.json;
+
+/**
+ * JSON格式错误或者无法绑定到目标类型
+ */
+public class JsonException extends RuntimeException {
+
+    public JsonException(String message) {
+        super(message);
+    }
+
+    public JsonException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,720 @@
+package org.spring.web.json;
+
+import org.spring.convert.ConversionService;
+import org.spring.convert.StringConverters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * 流式JSON读取，边从输入流读字节边绑定到目标类型，不先建JSON树
+ * <p>
+ * 支持字符串、数字、布尔、枚举、List/Set/Collection、数组、键为字符串的Map、record和普通JavaBean，
+ * 目标是Object时按JSON本身的类型生成Map/List/String/Long/Double/Boolean。
+ * 每个类的属性(setter或字段)第一次绑定时解析成MethodHandle，之后按类缓存，未知属性直接跳过。
+ * 其他类型(日期、UUID等)从字符串经 {@link ConversionService} 转换，格式和 {@link JsonWriter} 输出的toString()一致。
+ * 读入的字节超过上限时抛 {@link BodyTooLargeException}，格式错误抛 {@link JsonException}
+ */
+public final class JsonReader {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<ObjectBinder> BINDERS = new ClassValue<>() {
+        @Override
+        protected ObjectBinder computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    /**
+     * 已经从流里读出的字节数
+     */
+    private long consumed;
+    /**
+     * 读字符串和数字共用
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    private JsonReader(InputStream in, long maxBytes) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 读一个完整的JSON值并绑定到目标类型
+     *
+     * @param in       输入
+     * @param type     目标类型，可以带泛型
+     * @param maxBytes 最多读多少字节
+     * @return 绑定好的对象，输入为空或者是null时返回null
+     */
+    public static Object read(InputStream in, Type type, long maxBytes) throws IOException {
+        JsonReader reader = new JsonReader(in, maxBytes);
+        if (reader.peek() < 0) {
+            return null;
+        }
+        Object value = reader.readValue(type, 0);
+        if (reader.peek() >= 0) {
+            throw reader.error("JSON结束后还有多余内容");
+        }
+        return value;
+    }
+
+    private Object readValue(Type type, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("JSON嵌套超过" + MAX_DEPTH + "层");
+        }
+        Class<?> raw = rawClass(type);
+        int c = peek();
+        if (c == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        if (raw == Object.class) {
+            return readNatural(depth);
+        }
+        if (raw == String.class || raw == CharSequence.class) {
+            return readScalar();
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            if (c == 't' || c == 'f') {
+                return readBoolean();
+            }
+            return convert(readScalar(), raw);
+        }
+        if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return readNumber(raw);
+            }
+            return convert(readScalar(), raw);
+        }
+        if (raw.isEnum()) {
+            String name = readScalar();
+            for (Object constant : raw.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw error("不是 " + raw.getSimpleName() + " 的枚举值");
+        }
+        if (raw == byte[].class && c == '"') {
+            try {
+                return Base64.getDecoder().decode(readString());
+            } catch (IllegalArgumentException e) {
+                throw error("不是合法的Base64");
+            }
+        }
+        if (raw.isArray()) {
+            Type componentType = type instanceof GenericArrayType array ? array.getGenericComponentType() : raw.getComponentType();
+            List<Object> elements = readCollection(new ArrayList<>(), componentType, depth);
+            Object array = Array.newInstance(raw.getComponentType(), elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                Object element = elements.get(i);
+                if (element == null && raw.getComponentType().isPrimitive()) {
+                    throw error("数组 " + raw.getComponentType() + "[] 的元素不能是null");
+                }
+                Array.set(array, i, element);
+            }
+            return array;
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            return readCollection(newCollection(raw), typeArgument(type, 0), depth);
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            return readMap(newMap(raw), typeArgument(type, 0), typeArgument(type, 1), depth);
+        }
+        if (raw.getName().startsWith("java.") || raw.getName().startsWith("javax.")) {
+            return convert(readScalar(), type);
+        }
+        return readObject(BINDERS.get(raw), depth);
+    }
+
+    /**
+     * 目标是Object时按JSON本身的类型读
+     */
+    private Object readNatural(int depth) throws IOException {
+        int c = peek();
+        switch (c) {
+            case '{' -> {
+                return readMap(new LinkedHashMap<>(), String.class, Object.class, depth);
+            }
+            case '[' -> {
+                return readCollection(new ArrayList<>(), Object.class, depth);
+            }
+            case '"' -> {
+                return readString();
+            }
+            case 't', 'f' -> {
+                return readBoolean();
+            }
+            default -> {
+                return readNumber(Number.class);
+            }
+        }
+    }
+
+    private <C extends Collection<Object>> C readCollection(C target, Type elementType, int depth) throws IOException {
+        expect('[');
+        if (peek() == ']') {
+            position++;
+            return target;
+        }
+        do {
+            target.add(readValue(elementType, depth + 1));
+        } while (nextElement(']'));
+        return target;
+    }
+
+    private Map<Object, Object> readMap(Map<Object, Object> target, Type keyType, Type valueType, int depth) throws IOException {
+        expect('{');
+        if (peek() == '}') {
+            position++;
+            return target;
+        }
+        Class<?> rawKeyType = rawClass(keyType);
+        do {
+            String name = readString();
+            Object key = rawKeyType == String.class || rawKeyType == Object.class ? name : convert(name, keyType);
+            expect(':');
+            target.put(key, readValue(valueType, depth + 1));
+        } while (nextElement('}'));
+        return target;
+    }
+
+    private Object readObject(ObjectBinder binder, int depth) throws IOException {
+        expect('{');
+        Object[] arguments = binder.record ? new Object[binder.parameterTypes.length] : null;
+        Object target = binder.record ? null : binder.instantiate();
+        if (peek() == '}') {
+            position++;
+        } else {
+            do {
+                String name = readString();
+                expect(':');
+                PropertyBinder property = binder.properties.get(name);
+                if (property == null) {
+                    skipValue(depth + 1);
+                    continue;
+                }
+                Object value = readValue(property.type, depth + 1);
+                if (arguments != null) {
+                    arguments[property.index] = value;
+                } else if (value != null || !property.primitive) {
+                    property.set(target, value);
+                }
+            } while (nextElement('}'));
+        }
+        if (arguments == null) {
+            return target;
+        }
+        //没出现的基本类型组件用默认值
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == null && binder.parameterTypes[i].isPrimitive()) {
+                arguments[i] = StringConverters.defaultValue(binder.parameterTypes[i]);
+            }
+        }
+        return binder.construct(arguments);
+    }
+
+    private void skipValue(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("JSON嵌套超过" + MAX_DEPTH + "层");
+        }
+        int c = peek();
+        switch (c) {
+            case '{' -> {
+                position++;
+                if (peek() == '}') {
+                    position++;
+                    return;
+                }
+                do {
+                    skipString();
+                    expect(':');
+                    skipValue(depth + 1);
+                } while (nextElement('}'));
+            }
+            case '[' -> {
+                position++;
+                if (peek() == ']') {
+                    position++;
+                    return;
+                }
+                do {
+                    skipValue(depth + 1);
+                } while (nextElement(']'));
+            }
+            case '"' -> skipString();
+            case 't' -> readLiteral("true");
+            case 'f' -> readLiteral("false");
+            case 'n' -> readLiteral("null");
+            default -> readNumberText();
+        }
+    }
+
+    /**
+     * 读完一个元素之后：逗号返回true，结束符返回false
+     */
+    private boolean nextElement(int end) throws IOException {
+        int c = peek();
+        if (c == ',') {
+            position++;
+            return true;
+        }
+        if (c == end) {
+            position++;
+            return false;
+        }
+        throw error("期望','或'" + (char) end + "'");
+    }
+
+    /**
+     * 字符串、数字或布尔值的文本，用于绑定到String和需要转换的类型
+     */
+    private String readScalar() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == 't' || c == 'f') {
+            return readBoolean().toString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            readNumberText();
+            return text.toString();
+        }
+        throw error(c < 0 ? "JSON没有结束" : "期望字符串、数字或布尔值");
+    }
+
+    private Boolean readBoolean() throws IOException {
+        if (peek() == 't') {
+            readLiteral("true");
+            return Boolean.TRUE;
+        }
+        readLiteral("false");
+        return Boolean.FALSE;
+    }
+
+    private Object readNumber(Class<?> type) throws IOException {
+        readNumberText();
+        int length = text.length();
+        try {
+            if (type == int.class || type == Integer.class) {
+                return Integer.parseInt(text, 0, length, 10);
+            }
+            if (type == long.class || type == Long.class) {
+                return Long.parseLong(text, 0, length, 10);
+            }
+            if (type == double.class || type == Double.class) {
+                return Double.parseDouble(text.toString());
+            }
+            if (type == float.class || type == Float.class) {
+                return Float.parseFloat(text.toString());
+            }
+            if (type == short.class || type == Short.class) {
+                return Short.parseShort(text.toString());
+            }
+            if (type == byte.class || type == Byte.class) {
+                return Byte.parseByte(text.toString());
+            }
+            if (type == BigDecimal.class) {
+                return new BigDecimal(text.toString());
+            }
+            if (type == BigInteger.class) {
+                return new BigInteger(text.toString());
+            }
+            if (type == Number.class) {
+                //整数优先用Long，放不下再用BigInteger
+                for (int i = 0; i < length; i++) {
+                    char c = text.charAt(i);
+                    if (c == '.' || c == 'e' || c == 'E') {
+                        return Double.parseDouble(text.toString());
+                    }
+                }
+                return length < 19 ? Long.parseLong(text, 0, length, 10) : new BigInteger(text.toString());
+            }
+        } catch (NumberFormatException e) {
+            throw error("数字不能转换成 " + type.getSimpleName());
+        }
+        return convert(text.toString(), type);
+    }
+
+    private void readNumberText() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            int c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                text.append((char) c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (text.length() == 0) {
+            throw error(position < limit ? "意外的字符'" + (char) (buffer[position] & 0xFF) + "'" : "JSON没有结束");
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return text.toString();
+            }
+            if (b == '\\') {
+                readEscape();
+            } else if (b < 0) {
+                throw error("字符串没有结束");
+            } else if (b < 0x20) {
+                throw error("字符串里有未转义的控制字符");
+            } else if (b < 0x80) {
+                text.append((char) b);
+            } else {
+                readUtf8(b);
+            }
+        }
+    }
+
+    /**
+     * 跳过字符串，转义符后面的字节不会是引号，直接跳过即可
+     */
+    private void skipString() throws IOException {
+        expect('"');
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            }
+            if (b < 0 || (b == '\\' && read() < 0)) {
+                throw error("字符串没有结束");
+            }
+        }
+    }
+
+    private void readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"', '\\', '/' -> text.append((char) c);
+            case 'b' -> text.append('\b');
+            case 'f' -> text.append('\f');
+            case 'n' -> text.append('\n');
+            case 'r' -> text.append('\r');
+            case 't' -> text.append('\t');
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw error("\\u后面需要4位十六进制数");
+                    }
+                    value = (value << 4) | digit;
+                }
+                text.append((char) value);
+            }
+            default -> throw error("非法的转义");
+        }
+    }
+
+    /**
+     * 多字节的UTF-8字符，第一个字节已经读出
+     */
+    private void readUtf8(int first) throws IOException {
+        int codePoint;
+        int extra;
+        if ((first & 0xE0) == 0xC0) {
+            codePoint = first & 0x1F;
+            extra = 1;
+        } else if ((first & 0xF0) == 0xE0) {
+            codePoint = first & 0x0F;
+            extra = 2;
+        } else if ((first & 0xF8) == 0xF0) {
+            codePoint = first & 0x07;
+            extra = 3;
+        } else {
+            throw error("不是合法的UTF-8");
+        }
+        for (int i = 0; i < extra; i++) {
+            int next = read();
+            if (next < 0 || (next & 0xC0) != 0x80) {
+                throw error("不是合法的UTF-8");
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (codePoint > Character.MAX_CODE_POINT) {
+            throw error("不是合法的UTF-8");
+        }
+        text.appendCodePoint(codePoint);
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw error("期望" + literal);
+            }
+        }
+    }
+
+    private void expect(int expected) throws IOException {
+        if (peek() != expected) {
+            throw error("期望'" + (char) expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * 跳过空白，返回下一个字节但不消费，读完返回-1
+     */
+    private int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            int c = buffer[position] & 0xFF;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        consumed += n;
+        if (consumed > maxBytes) {
+            throw new BodyTooLargeException(maxBytes);
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private JsonException error(String message) {
+        return new JsonException(message + "，位置 " + (consumed - limit + position));
+    }
+
+    private Object convert(String value, Type type) {
+        ConversionService conversionService = ConversionService.getSharedInstance();
+        if (!conversionService.canConvert(String.class, type)) {
+            throw error("不支持绑定到类型 " + type.getTypeName());
+        }
+        try {
+            return conversionService.convert(value, type);
+        } catch (RuntimeException e) {
+            throw new JsonException("值不能转换成 " + type.getTypeName(), e);
+        }
+    }
+
+    private Collection<Object> newCollection(Class<?> raw) {
+        if (raw.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<>();
+        }
+        if (raw.isAssignableFrom(LinkedHashSet.class)) {
+            return new LinkedHashSet<>();
+        }
+        if (raw.isAssignableFrom(TreeSet.class)) {
+            return new TreeSet<>();
+        }
+        if (raw.isAssignableFrom(ArrayDeque.class)) {
+            return new ArrayDeque<>();
+        }
+        throw error("不支持的集合类型 " + raw.getName());
+    }
+
+    private Map<Object, Object> newMap(Class<?> raw) {
+        if (raw.isAssignableFrom(LinkedHashMap.class)) {
+            return new LinkedHashMap<>();
+        }
+        if (raw.isAssignableFrom(TreeMap.class)) {
+            return new TreeMap<>();
+        }
+        throw error("不支持的Map类型 " + raw.getName());
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments().length > index) {
+            return parameterized.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+        if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+        if (type instanceof GenericArrayType array) {
+            return Array.newInstance(rawClass(array.getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType wildcard) {
+            return rawClass(wildcard.getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable<?> variable) {
+            return rawClass(variable.getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * record用规范构造器，组件名就是属性名；
+     * 普通类用无参构造器，属性是public的setXxx方法，没有setter的非final字段直接写
+     */
+    private static ObjectBinder introspect(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new JsonException("无法绑定到接口或抽象类 " + type.getName());
+        }
+        Map<String, PropertyBinder> properties = new HashMap<>();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = components[i].getType();
+                    properties.put(components[i].getName(), new PropertyBinder(components[i].getGenericType(), parameterTypes[i], null, i));
+                }
+                MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                        .asSpreader(Object[].class, parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                return new ObjectBinder(type, true, constructor, parameterTypes, properties);
+            }
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            for (Method method : type.getMethods()) {
+                String name = method.getName();
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1
+                        || !name.startsWith("set") || name.length() == 3) {
+                    continue;
+                }
+                properties.putIfAbsent(decapitalize(name.substring(3)), new PropertyBinder(method.getGenericParameterTypes()[0],
+                        method.getParameterTypes()[0], lookup.unreflect(method).asType(SETTER_TYPE), -1));
+            }
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)
+                            || field.isSynthetic() || properties.containsKey(field.getName())) {
+                        continue;
+                    }
+                    MethodHandle setter = MethodHandles.privateLookupIn(c, lookup).unreflectSetter(field).asType(SETTER_TYPE);
+                    properties.put(field.getName(), new PropertyBinder(field.getGenericType(), field.getType(), setter, -1));
+                }
+            }
+            return new ObjectBinder(type, false, constructor, null, properties);
+        } catch (NoSuchMethodException e) {
+            throw new JsonException(type.getName() + " 没有无参构造器，无法绑定", e);
+        } catch (IllegalAccessException e) {
+            throw new JsonException("无法访问 " + type.getName() + " 的属性", e);
+        }
+    }
+
+    private static String decapitalize(String name) {
+        //URL -> URL，Name -> name，和JavaBeans规范一致
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * 一个类的绑定方式，按类缓存
+     */
+    private static final class ObjectBinder {
+        private final Class<?> type;
+        private final boolean record;
+        /**
+         * 普通类是 ()Object，record是 (Object[])Object
+         */
+        private final MethodHandle constructor;
+        /**
+         * record的组件类型
+         */
+        private final Class<?>[] parameterTypes;
+        private final Map<String, PropertyBinder> properties;
+
+        ObjectBinder(Class<?> type, boolean record, MethodHandle constructor, Class<?>[] parameterTypes, Map<String, PropertyBinder> properties) {
+            this.type = type;
+            this.record = record;
+            this.constructor = constructor;
+            this.parameterTypes = parameterTypes;
+            this.properties = properties;
+        }
+
+        Object instantiate() {
+            try {
+                return (Object) constructor.invokeExact();
+            } catch (Throwable t) {
+                throw new JsonException("创建 " + type.getName() + " 失败", t);
+            }
+        }
+
+        Object construct(Object[] arguments) {
+            try {
+                return (Object) constructor.invokeExact(arguments);
+            } catch (Throwable t) {
+                throw new JsonException("创建 " + type.getName() + " 失败", t);
+            }
+        }
+    }
+
+    private static final class PropertyBinder {
+        private final Type type;
+        private final boolean primitive;
+        /**
+         * 普通类的setter，record为null
+         */
+        private final MethodHandle setter;
+        /**
+         * record组件的下标
+         */
+        private final int index;
+
+        PropertyBinder(Type type, Class<?> rawType, MethodHandle setter, int index) {
+            this.type = type;
+            this.primitive = rawType.isPrimitive();
+            this.setter = setter;
+            this.index = index;
+        }
+
+        void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw new JsonException("设置属性失败: " + t.getMessage(), t);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.spring.web.json;
+
+import org.spring.web.result.ResponseBuffer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * 流式JSON输出，直接按UTF-8写进 {@link ResponseBuffer}，不拼中间字符串
+ * <p>
+ * 支持null、字符串、数字、布尔、枚举、Map、Iterable、数组、Optional、record和普通JavaBean。
+ * 每个类的属性(getter或public字段)第一次输出时解析成MethodHandle，之后按类缓存。
+ * 其他类型(日期、UUID等)输出toString()的字符串
+ */
+public final class JsonWriter {
+
+    /**
+     * 超过这个深度认为有循环引用
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private static final ClassValue<Property[]> PROPERTIES = new ClassValue<>() {
+        @Override
+        protected Property[] computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    private JsonWriter() {
+    }
+
+    public static void write(Object value, ResponseBuffer out) {
+        writeValue(value, out, 0);
+    }
+
+    private static void writeValue(Object value, ResponseBuffer out, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("JSON嵌套超过" + MAX_DEPTH + "层，可能有循环引用");
+        }
+        if (value == null) {
+            writeAscii("null", out);
+        } else if (value instanceof CharSequence text) {
+            writeString(text, out);
+        } else if (value instanceof Boolean) {
+            writeAscii(value.toString(), out);
+        } else if (value instanceof Number number) {
+            writeNumber(number, out);
+        } else if (value instanceof Character || value instanceof Enum<?>) {
+            writeString(value instanceof Enum<?> e ? e.name() : value.toString(), out);
+        } else if (value instanceof Map<?, ?> map) {
+            out.write('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) out.write(',');
+                first = false;
+                writeString(String.valueOf(entry.getKey()), out);
+                out.write(':');
+                writeValue(entry.getValue(), out, depth + 1);
+            }
+            out.write('}');
+        } else if (value instanceof Iterable<?> iterable) {
+            out.write('[');
+            boolean first = true;
+            for (Object element : iterable) {
+                if (!first) out.write(',');
+                first = false;
+                writeValue(element, out, depth + 1);
+            }
+            out.write(']');
+        } else if (value instanceof byte[] bytes) {
+            writeString(Base64.getEncoder().encodeToString(bytes), out);
+        } else if (value.getClass().isArray()) {
+            out.write('[');
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.write(',');
+                writeValue(Array.get(value, i), out, depth + 1);
+            }
+            out.write(']');
+        } else if (value instanceof Optional<?> optional) {
+            writeValue(optional.orElse(null), out, depth);
+        } else if (isValueType(value.getClass())) {
+            writeString(value.toString(), out);
+        } else {
+            writeBean(value, out, depth);
+        }
+    }
+
+    private static void writeBean(Object bean, ResponseBuffer out, int depth) {
+        out.write('{');
+        boolean first = true;
+        for (Property property : PROPERTIES.get(bean.getClass())) {
+            if (!first) out.write(',');
+            first = false;
+            out.write(property.encodedName, 0, property.encodedName.length);
+            Object value;
+            try {
+                value = (Object) property.getter.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("读取属性 " + property.name + " 失败", t);
+            }
+            writeValue(value, out, depth + 1);
+        }
+        out.write('}');
+    }
+
+    private static void writeNumber(Number number, ResponseBuffer out) {
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            //JSON没有NaN和无穷大
+            writeAscii(Double.isNaN(d) || Double.isInfinite(d) ? "null" : number.toString(), out);
+        } else if (number instanceof BigDecimal decimal) {
+            writeAscii(decimal.toString(), out);
+        } else if (number instanceof BigInteger || number instanceof Long || number instanceof Integer
+                || number instanceof Short || number instanceof Byte) {
+            writeAscii(number.toString(), out);
+        } else {
+            writeString(number.toString(), out);
+        }
+    }
+
+    private static void writeString(CharSequence text, ResponseBuffer out) {
+        out.write('"');
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                out.write(c);
+                continue;
+            }
+            switch (c) {
+                case '"' -> writeAscii("\\\"", out);
+                case '\\' -> writeAscii("\\\\", out);
+                case '\n' -> writeAscii("\\n", out);
+                case '\r' -> writeAscii("\\r", out);
+                case '\t' -> writeAscii("\\t", out);
+                case '\b' -> writeAscii("\\b", out);
+                case '\f' -> writeAscii("\\f", out);
+                default -> {
+                    //控制字符和JS里不能出现在字符串字面量里的行分隔符转义
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        writeAscii("\\u", out);
+                        out.write(HEX[(c >> 12) & 0xF]);
+                        out.write(HEX[(c >> 8) & 0xF]);
+                        out.write(HEX[(c >> 4) & 0xF]);
+                        out.write(HEX[c & 0xF]);
+                    } else {
+                        i += out.writeUtf8Char(text, i) - 1;
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    private static void writeAscii(String s, ResponseBuffer out) {
+        for (int i = 0; i < s.length(); i++) {
+            out.write(s.charAt(i));
+        }
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || type.isEnum();
+    }
+
+    /**
+     * record按组件顺序；普通类按字段声明顺序(父类在前)找getter，没有getter的public字段直接读，
+     * 最后是没有对应字段的getter，按名字排序
+     */
+    private static Property[] introspect(Class<?> type) {
+        Map<String, Property> properties = new LinkedHashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            if (type.isRecord()) {
+                for (RecordComponent component : type.getRecordComponents()) {
+                    properties.put(component.getName(), new Property(component.getName(), unreflect(lookup, component.getAccessor())));
+                }
+                return properties.values().toArray(new Property[0]);
+            }
+            Map<String, Method> getters = new TreeMap<>();
+            for (Method method : type.getMethods()) {
+                String name = getterName(method);
+                if (name != null) {
+                    getters.putIfAbsent(name, method);
+                }
+            }
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                            || properties.containsKey(field.getName())) {
+                        continue;
+                    }
+                    Method getter = getters.remove(field.getName());
+                    if (getter != null) {
+                        properties.put(field.getName(), new Property(field.getName(), unreflect(lookup, getter)));
+                    } else if (Modifier.isPublic(modifiers)) {
+                        properties.put(field.getName(), new Property(field.getName(),
+                                lookup.unreflectGetter(field).asType(GETTER_TYPE)));
+                    }
+                }
+            }
+            for (Map.Entry<String, Method> entry : getters.entrySet()) {
+                properties.put(entry.getKey(), new Property(entry.getKey(), unreflect(lookup, entry.getValue())));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法读取 " + type.getName() + " 的属性", e);
+        }
+        return properties.values().toArray(new Property[0]);
+    }
+
+    private static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method) throws IllegalAccessException {
+        if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            method.setAccessible(true);
+        }
+        return lookup.unreflect(method).asType(GETTER_TYPE);
+    }
+
+    private static String getterName(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+            return null;
+        }
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2 && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+            return decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    private static String decapitalize(String name) {
+        //URL -> URL，Name -> name，和JavaBeans规范一致
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static final class Property {
+        private final String name;
+        /**
+         * 预先编码好的 "name": 
+         */
+        private final byte[] encodedName;
+        private final MethodHandle getter;
+
+        Property(String name, MethodHandle getter) {
+            this.name = name;
+            ResponseBuffer buffer = new ResponseBuffer();
+            try {
+                writeString(name, buffer);
+                buffer.write(':');
+                this.encodedName = buffer.toByteArray();
+            } finally {
+                buffer.release();
+            }
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.spring.web.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 所有路由的统计，导出成Prometheus文本格式，也可以注册到JMX
+ * <p>
+ * 没有匹配到路由的请求(静态资源、404)记在 {@link #UNMATCHED} 下
+ */
+@Slf4j
+public class RequestMetrics {
+
+    public static final String UNMATCHED = "UNMATCHED";
+
+    private static final String DURATION = "http_server_request_duration_seconds";
+
+    /**
+     * 直方图导出的桶边界，秒
+     */
+    private static final double[] BUCKET_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final List<RouteMetrics> routes = new CopyOnWriteArrayList<>();
+
+    private final RouteMetrics unmatched = register(UNMATCHED);
+
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    public RouteMetrics register(String route) {
+        RouteMetrics metrics = new RouteMetrics(route);
+        routes.add(metrics);
+        return metrics;
+    }
+
+    public RouteMetrics getUnmatched() {
+        return unmatched;
+    }
+
+    /**
+     * Prometheus文本格式(0.0.4)
+     */
+    public void writePrometheus(StringBuilder out) {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>(routes.size());
+        for (RouteMetrics route : routes) {
+            snapshots.add(route.snapshot());
+        }
+        out.append("# HELP http_server_requests_total Requests handled per route.\n");
+        out.append("# TYPE http_server_requests_total counter\n");
+        for (RouteMetrics route : routes) {
+            sample(out, "http_server_requests_total", route, null, null).append(route.getRequestCount()).append('\n');
+        }
+        out.append("# HELP http_server_errors_total Requests per route that threw or answered 5xx.\n");
+        out.append("# TYPE http_server_errors_total counter\n");
+        for (RouteMetrics route : routes) {
+            sample(out, "http_server_errors_total", route, null, null).append(route.getErrorCount()).append('\n');
+        }
+        out.append("# HELP " + DURATION + " Request latency per route.\n");
+        out.append("# TYPE " + DURATION + " histogram\n");
+        for (int i = 0; i < routes.size(); i++) {
+            RouteMetrics route = routes.get(i);
+            LatencyHistogram.Snapshot snapshot = snapshots.get(i);
+            for (double bound : BUCKET_BOUNDS) {
+                sample(out, DURATION + "_bucket", route, "le", format(bound))
+                        .append(snapshot.getCountAtOrBelow((long) (bound * 1_000_000))).append('\n');
+            }
+            sample(out, DURATION + "_bucket", route, "le", "+Inf").append(snapshot.getCount()).append('\n');
+            sample(out, DURATION + "_sum", route, null, null).append(format(snapshot.getSum() / 1e6)).append('\n');
+            sample(out, DURATION + "_count", route, null, null).append(snapshot.getCount()).append('\n');
+        }
+        out.append("# HELP " + DURATION + "_max Slowest request per route since start.\n");
+        out.append("# TYPE " + DURATION + "_max gauge\n");
+        for (int i = 0; i < routes.size(); i++) {
+            sample(out, DURATION + "_max", routes.get(i), null, null).append(format(snapshots.get(i).getMax() / 1e6)).append('\n');
+        }
+        out.append("# HELP " + DURATION + "_quantile Latency quantiles per route since start.\n");
+        out.append("# TYPE " + DURATION + "_quantile gauge\n");
+        for (int i = 0; i < routes.size(); i++) {
+            for (double quantile : QUANTILES) {
+                sample(out, DURATION + "_quantile", routes.get(i), "quantile", format(quantile))
+                        .append(format(snapshots.get(i).getValueAtQuantile(quantile) / 1e6)).append('\n');
+            }
+        }
+    }
+
+    private static StringBuilder sample(StringBuilder out, String name, RouteMetrics route, String label, String value) {
+        out.append(name).append("{route=\"");
+        escape(out, route.getRoute());
+        out.append('"');
+        if (label != null) {
+            out.append(',').append(label).append("=\"").append(value).append('"');
+        }
+        return out.append("} ");
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * 每个路由注册一个MXBean，名字是 org.spring.web:type=RequestMetrics,servlet=...,route=...
+     */
+    public synchronized void registerMBeans(String servletName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (RouteMetrics route : routes) {
+            try {
+                ObjectName name = new ObjectName("org.spring.web:type=RequestMetrics,servlet="
+                        + ObjectName.quote(servletName == null ? "" : servletName) + ",route=" + ObjectName.quote(route.getRoute()));
+                server.registerMBean(route, name);
+                registeredNames.add(name);
+            } catch (JMException e) {
+                log.warn("注册JMX失败 {}: {}", route.getRoute(), e.toString());
+            }
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.debug("注销JMX失败 {}: {}", name, e.toString());
+            }
+        }
+        registeredNames.clear();
+    }
+}
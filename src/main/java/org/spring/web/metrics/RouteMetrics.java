@@ -0,0 +1,86 @@
+package org.spring.web.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个路由的请求数、错误数和延迟分布，启动时创建好挂在处理器上，记录时不查表
+ */
+public class RouteMetrics implements RouteMetricsMXBean {
+
+    private final String route;
+    private final LongAdder requests = new LongAdder();
+    /**
+     * 抛出异常或者状态码5xx的请求
+     */
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RouteMetrics(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @param nanos 从收到请求到写完响应的耗时
+     * @param error 是否算作错误
+     */
+    public void record(long nanos, boolean error) {
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+        latency.record(nanos / 1000);
+    }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public String getRoute() {
+        return route;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.snapshot().getMean() / 1000;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return quantileMillis(0.5);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return quantileMillis(0.9);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return quantileMillis(0.99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return quantileMillis(0.999);
+    }
+
+    private double quantileMillis(double quantile) {
+        return latency.snapshot().getValueAtQuantile(quantile) / 1000.0;
+    }
+}
@@ -0,0 +1,25 @@
+package org.spring.web.metrics;
+
+/**
+ * 通过JMX查看单个路由的统计，耗时单位毫秒
+ */
+public interface RouteMetricsMXBean {
+
+    String getRoute();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+}
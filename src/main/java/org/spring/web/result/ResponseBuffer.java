@@ -0,0 +1,160 @@
+package org.spring.web.result;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 响应体缓冲，由池化的固定大小字节块组成，写完后知道总长度，再一次性写给容器
+ * <p>
+ * 用完必须调用 {@link #release()} 把字节块还回池里。
+ * Servlet的输出流只接受byte[]，所以池里是堆上的字节块而不是直接内存，避免多一次拷贝
+ */
+public final class ResponseBuffer extends OutputStream {
+
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * 池里最多留的字节块，超出的直接丢给GC
+     */
+    private static final int MAX_POOLED_CHUNKS = 512;
+
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    private final List<byte[]> chunks = new ArrayList<>(2);
+    private byte[] current;
+    private int position;
+    private int size;
+
+    public ResponseBuffer() {
+        current = acquire();
+        chunks.add(current);
+    }
+
+    private static byte[] acquire() {
+        byte[] chunk = POOL.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    @Override
+    public void write(int b) {
+        if (position == CHUNK_SIZE) {
+            nextChunk();
+        }
+        current[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (position == CHUNK_SIZE) {
+                nextChunk();
+            }
+            int n = Math.min(length, CHUNK_SIZE - position);
+            System.arraycopy(bytes, offset, current, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * 直接按UTF-8编码写入字符，不经过String.getBytes
+     */
+    public void writeUtf8(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                write(c);
+                i++;
+            } else {
+                i += writeUtf8Char(text, i);
+            }
+        }
+    }
+
+    /**
+     * 编码index处的一个字符，代理对合成一个码点，落单的代理写成?
+     *
+     * @return 消耗的char个数，1或2
+     */
+    public int writeUtf8Char(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c < 0x80) {
+            write(c);
+        } else if (c < 0x800) {
+            write(0xC0 | (c >> 6));
+            write(0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+                return 2;
+            }
+            write('?');
+        } else {
+            write(0xE0 | (c >> 12));
+            write(0x80 | ((c >> 6) & 0x3F));
+            write(0x80 | (c & 0x3F));
+        }
+        return 1;
+    }
+
+    private void nextChunk() {
+        current = acquire();
+        chunks.add(current);
+        position = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按顺序写出所有字节块
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int remaining = size;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(remaining, CHUNK_SIZE);
+            out.write(chunk, 0, n);
+            remaining -= n;
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(size - offset, CHUNK_SIZE);
+            System.arraycopy(chunk, 0, bytes, offset, n);
+            offset += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * 把字节块还回池里，之后不能再使用
+     */
+    public void release() {
+        for (byte[] chunk : chunks) {
+            POOL.offer(chunk);
+        }
+        chunks.clear();
+        current = null;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,15 @@
+package org.spring.web.result;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 把处理器方法的返回值写成响应体
+ */
+@FunctionalInterface
+public interface ReturnValueHandler {
+
+    /**
+     * @param value 返回值，不为null
+     */
+    void handle(Object value, HttpServletResponse response) throws Exception;
+}
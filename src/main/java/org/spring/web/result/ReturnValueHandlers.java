@@ -0,0 +1,128 @@
+package org.spring.web.result;
+
+import org.spring.web.json.JsonWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 按返回类型选择返回值处理器，启动时为每个处理器方法选好
+ * <p>
+ * 支持的返回值：
+ * <ul>
+ *     <li>void / null 不写响应体，处理器自己写</li>
+ *     <li>String text/plain</li>
+ *     <li>byte[] / ByteBuffer application/octet-stream</li>
+ *     <li>其他对象 application/json</li>
+ * </ul>
+ * 处理器已经设置过Content-Type时不覆盖。响应体先写进池化的 {@link ResponseBuffer}，
+ * 设置好Content-Length后一次写出、一次flush
+ */
+public final class ReturnValueHandlers {
+
+    private static final String TEXT = "text/plain;charset=UTF-8";
+    private static final String JSON = "application/json;charset=UTF-8";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final ReturnValueHandler STRING = (value, response) -> {
+        ResponseBuffer buffer = new ResponseBuffer();
+        try {
+            buffer.writeUtf8((CharSequence) value);
+            send(response, TEXT, buffer);
+        } finally {
+            buffer.release();
+        }
+    };
+
+    private static final ReturnValueHandler BYTES = (value, response) -> {
+        byte[] bytes = (byte[]) value;
+        prepare(response, OCTET_STREAM, bytes.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(bytes);
+        response.flushBuffer();
+    };
+
+    private static final ReturnValueHandler BYTE_BUFFER = (value, response) -> {
+        ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+        prepare(response, OCTET_STREAM, buffer.remaining());
+        ServletOutputStream out = response.getOutputStream();
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] chunk = new byte[Math.min(buffer.remaining(), ResponseBuffer.CHUNK_SIZE)];
+            while (buffer.hasRemaining()) {
+                int n = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+        response.flushBuffer();
+    };
+
+    private static final ReturnValueHandler OBJECT = (value, response) -> {
+        ResponseBuffer buffer = new ResponseBuffer();
+        try {
+            JsonWriter.write(value, buffer);
+            send(response, JSON, buffer);
+        } finally {
+            buffer.release();
+        }
+    };
+
+    /**
+     * 声明类型看不出来时(Object、CompletionStage的结果)按实际类型选
+     */
+    private static final ReturnValueHandler RUNTIME = (value, response) -> forType(value.getClass()).handle(value, response);
+
+    private ReturnValueHandlers() {
+    }
+
+    /**
+     * @param returnType 方法声明的返回类型
+     * @return void返回null
+     */
+    public static ReturnValueHandler forReturnType(Class<?> returnType) {
+        if (returnType == void.class || returnType == Void.class) {
+            return null;
+        }
+        if (returnType == Object.class || CompletionStage.class.isAssignableFrom(returnType)) {
+            return RUNTIME;
+        }
+        return forType(returnType);
+    }
+
+    /**
+     * 按实际的值选处理器，用于异步结果
+     */
+    public static ReturnValueHandler forValue(Object value) {
+        return forType(value.getClass());
+    }
+
+    private static ReturnValueHandler forType(Class<?> type) {
+        if (CharSequence.class.isAssignableFrom(type)) {
+            return STRING;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (ByteBuffer.class.isAssignableFrom(type)) {
+            return BYTE_BUFFER;
+        }
+        return OBJECT;
+    }
+
+    private static void send(HttpServletResponse response, String contentType, ResponseBuffer buffer) throws Exception {
+        prepare(response, contentType, buffer.size());
+        buffer.writeTo(response.getOutputStream());
+        response.flushBuffer();
+    }
+
+    private static void prepare(HttpServletResponse response, String contentType, long length) {
+        if (response.getContentType() == null) {
+            response.setContentType(contentType);
+        }
+        response.setContentLengthLong(length);
+    }
+}
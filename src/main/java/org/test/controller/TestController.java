@@ -2,6 +2,8 @@ package org.test.controller;
 
 import org.spring.annotation.Autowired;
 import org.spring.annotation.Controller;
+import org.spring.annotation.PathVariable;
+import org.spring.annotation.RequestBody;
 import org.spring.annotation.RequestMapping;
 import org.spring.annotation.RequestParam;
 import org.test.service.HelloWorldService;
@@ -9,6 +11,9 @@ import org.test.service.HelloWorldService;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequestMapping("/test")
@@ -27,4 +32,39 @@ public class TestController {
         }
     }
 
+    @RequestMapping("/user/{id}")
+    public void user(HttpServletResponse response, @PathVariable("id") long id, @RequestParam("verbose") boolean verbose) {
+        try {
+            response.getWriter().write("user " + id + (verbose ? " " + helloWorldService.getString() : ""));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @RequestMapping("/json/{id}")
+    public Map<String, Object> json(@PathVariable("id") long id) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("text", helloWorldService.getString());
+        return result;
+    }
+
+    @RequestMapping("/echo")
+    public Map<String, Object> echo(@RequestBody Map<String, Object> body) {
+        Map<String, Object> result = new LinkedHashMap<>(body);
+        result.put("text", helloWorldService.getString());
+        return result;
+    }
+
+    @RequestMapping(value = "/async", async = true)
+    public CompletableFuture<Void> async(HttpServletResponse response) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                response.getWriter().write("async " + helloWorldService.getString());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
 }
\ No newline at end of file
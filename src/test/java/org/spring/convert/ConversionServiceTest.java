@@ -0,0 +1,132 @@
+package org.spring.convert;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionServiceTest {
+
+    private final ConversionService conversionService = new ConversionService();
+
+    @SuppressWarnings("unused")
+    private List<Integer> integers;
+    @SuppressWarnings("unused")
+    private Set<TimeUnit> units;
+    @SuppressWarnings("unused")
+    private Collection<? extends Duration> durations;
+    @SuppressWarnings("unused")
+    private List<Object> objects;
+    @SuppressWarnings("unused")
+    private List<LocalDate> dates;
+
+    private static Type typeOf(String field) throws NoSuchFieldException {
+        return ConversionServiceTest.class.getDeclaredField(field).getGenericType();
+    }
+
+    @Test
+    void convertsStringsToScalars() {
+        assertEquals(42, conversionService.convert(" 42 ", int.class));
+        assertEquals(-7L, conversionService.convert("-7", Long.class));
+        assertEquals(new BigDecimal("1.50"), conversionService.convert("1.50", BigDecimal.class));
+        assertEquals(true, conversionService.convert("on", boolean.class));
+        assertEquals(false, conversionService.convert("", Boolean.class));
+        assertEquals('x', conversionService.convert("x", char.class));
+        assertEquals(TimeUnit.SECONDS, conversionService.convert("SECONDS", TimeUnit.class));
+        assertThrows(IllegalArgumentException.class, () -> conversionService.convert("maybe", boolean.class));
+        assertThrows(NumberFormatException.class, () -> conversionService.convert("1.5", int.class));
+    }
+
+    @Test
+    void parsesDurations() {
+        assertEquals(Duration.ofSeconds(10), conversionService.convert("10s", Duration.class));
+        assertEquals(Duration.ofMillis(500), conversionService.convert("500ms", Duration.class));
+        assertEquals(Duration.ofMillis(250), conversionService.convert("250", Duration.class));
+        assertEquals(Duration.ofMinutes(1), conversionService.convert("PT1M", Duration.class));
+        assertEquals(Duration.ofDays(2), conversionService.convert(" 2D ", Duration.class));
+        assertEquals(Duration.ofNanos(100), conversionService.convert("100ns", Duration.class));
+        assertEquals(Duration.ofSeconds(-3), conversionService.convert("-3s", Duration.class));
+        assertThrows(IllegalArgumentException.class, () -> conversionService.convert("10 weeks", Duration.class));
+        assertThrows(IllegalArgumentException.class, () -> conversionService.convert(" ", Duration.class));
+    }
+
+    @Test
+    void parsesDataSizes() {
+        assertEquals(DataSize.ofBytes(10 << 10), conversionService.convert("10KB", DataSize.class));
+        assertEquals(DataSize.ofBytes(5L << 20), conversionService.convert("5m", DataSize.class));
+        assertEquals(DataSize.ofBytes(123), conversionService.convert("123", DataSize.class));
+        assertThrows(IllegalArgumentException.class, () -> conversionService.convert("KB", DataSize.class));
+        assertThrows(ArithmeticException.class, () -> conversionService.convert("9999999TB", DataSize.class));
+    }
+
+    @Test
+    void usesStaticFactoryMethodsOfTheTargetType() throws NoSuchFieldException {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, conversionService.convert(uuid.toString(), UUID.class));
+        assertEquals(LocalDate.of(2024, 2, 29), conversionService.convert(" 2024-02-29 ", LocalDate.class));
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), conversionService.convert("2024-01-02T03:04:05", LocalDateTime.class));
+        Instant now = Instant.now();
+        assertEquals(now, conversionService.convert(now.toString(), Instant.class));
+        ZonedDateTime zoned = ZonedDateTime.of(2024, 1, 2, 3, 4, 5, 0, ZoneId.of("Asia/Shanghai"));
+        assertEquals(zoned, conversionService.convert(zoned.toString(), ZonedDateTime.class));
+        assertEquals(ZoneId.of("UTC"), conversionService.convert("UTC", ZoneId.class));
+        assertEquals(Year.of(2024), conversionService.convert("2024", Year.class));
+        assertEquals(URI.create("http://example.com/a"), conversionService.convert("http://example.com/a", URI.class));
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2)),
+                conversionService.convert("2024-01-01,2024-01-02", typeOf("dates")));
+        assertThrows(DateTimeParseException.class, () -> conversionService.convert("2024-13-01", LocalDate.class));
+    }
+
+    @Test
+    void splitsCommaSeparatedValuesIntoArraysAndImmutableCollections() throws NoSuchFieldException {
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) conversionService.convert("1, 2,,3 ", int[].class));
+        assertArrayEquals(new String[]{"a", "b"}, (String[]) conversionService.convert("a,b", String[].class));
+
+        List<?> list = (List<?>) conversionService.convert("3,1,3", typeOf("integers"));
+        assertEquals(List.of(3, 1, 3), list);
+        assertThrows(UnsupportedOperationException.class, list::clear);
+
+        Set<?> set = (Set<?>) conversionService.convert("SECONDS,DAYS,SECONDS", typeOf("units"));
+        assertEquals(List.of(TimeUnit.SECONDS, TimeUnit.DAYS), List.copyOf(set));
+        assertThrows(UnsupportedOperationException.class, set::clear);
+
+        assertEquals(List.of(Duration.ofSeconds(1), Duration.ofMillis(2)), conversionService.convert("1s,2", typeOf("durations")));
+        assertEquals(List.of("a", "b"), conversionService.convert("a,b", List.class));
+        assertEquals(List.of("a", "b"), conversionService.convert("a,b", typeOf("objects")));
+    }
+
+    @Test
+    void passesThroughAssignableValuesAndRejectsUnknownTargets() throws NoSuchFieldException {
+        Integer value = 5;
+        assertSame(value, conversionService.convert(value, int.class));
+        assertSame(value, conversionService.convert(value, Number.class));
+        assertNull(conversionService.convert(null, int.class));
+        assertFalse(conversionService.canConvert(Integer.class, String.class));
+        assertFalse(conversionService.canConvert(String.class, Thread.class));
+        assertThrows(IllegalArgumentException.class, () -> conversionService.convert("x", Thread.class));
+    }
+
+    @Test
+    void cachesConvertersPerTypePair() {
+        assertSame(conversionService.getConverter(String.class, Duration.class), conversionService.getConverter(String.class, Duration.class));
+    }
+
+    @Test
+    void customConvertersTakePrecedenceAndInvalidateTheCache() {
+        assertEquals(1, conversionService.convert("1", int.class));
+        conversionService.addConverter(String.class, int.class, s -> s.length());
+        assertEquals(3, conversionService.convert("abc", int.class));
+        conversionService.addConverter(Integer.class, String.class, i -> "#" + i);
+        assertEquals("#7", conversionService.convert(7, String.class));
+    }
+}
@@ -0,0 +1,68 @@
+package org.spring.env;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvironmentTest {
+
+    private static Environment environment(Map<String, String> high, Map<String, String> low) {
+        return new Environment(List.of(new PropertySource("high", high), new PropertySource("low", low)));
+    }
+
+    @Test
+    void higherSourcesOverrideLowerOnes() {
+        Environment environment = environment(Map.of("port", "9090"), Map.of("port", "8080", "host", "localhost"));
+        assertEquals("9090", environment.getProperty("port"));
+        assertEquals("localhost", environment.getProperty("host"));
+        assertNull(environment.getProperty("missing"));
+        assertEquals("x", environment.getProperty("missing", "x"));
+        assertTrue(environment.containsProperty("host"));
+    }
+
+    @Test
+    void sourcesAreCopiedWhenCreated() {
+        Map<String, String> map = new HashMap<>(Map.of("a", "1"));
+        Environment environment = environment(map, Map.of());
+        map.put("a", "2");
+        assertEquals("1", environment.getProperty("a"));
+    }
+
+    @Test
+    void resolvesPlaceholdersWithDefaults() {
+        Environment environment = environment(Map.of("host", "example.com", "port", "80", "empty", ""), Map.of());
+        assertEquals("http://example.com:80/", environment.resolvePlaceholders("http://${host}:${port}/"));
+        assertEquals("8080", environment.resolvePlaceholders("${missing:8080}"));
+        assertEquals("", environment.resolvePlaceholders("${missing:}"));
+        assertEquals("", environment.resolvePlaceholders("${empty:x}"));
+        assertEquals("a:b", environment.resolvePlaceholders("${missing:a:b}"));
+        assertEquals("plain text", environment.resolvePlaceholders("plain text"));
+        assertNull(environment.resolvePlaceholders(null));
+    }
+
+    @Test
+    void resolvesNestedPlaceholders() {
+        Environment environment = environment(Map.of("b", "2", "key", "b", "url", "${host:localhost}:${b}"), Map.of());
+        assertEquals("2", environment.resolvePlaceholders("${a:${b:1}}"));
+        assertEquals("1", environment.resolvePlaceholders("${a:${c:1}}"));
+        assertEquals("2", environment.resolvePlaceholders("${${key}}"));
+        assertEquals("localhost:2", environment.resolvePlaceholders("${url}"));
+        //同一个key在一段文本里出现多次不算循环
+        assertEquals("2-2", environment.resolvePlaceholders("${b}-${b}"));
+    }
+
+    @Test
+    void rejectsMissingCyclicAndUnclosedPlaceholders() {
+        Environment environment = environment(Map.of("a", "${b}", "b", "${a}", "self", "x${self}"), Map.of());
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> environment.resolvePlaceholders("${missing}"))
+                .getMessage().contains("missing"));
+        assertThrows(IllegalArgumentException.class, () -> environment.resolvePlaceholders("${a}"));
+        assertThrows(IllegalArgumentException.class, () -> environment.resolvePlaceholders("${self}"));
+        assertThrows(IllegalArgumentException.class, () -> environment.resolvePlaceholders("${a:${b}"));
+        assertThrows(IllegalArgumentException.class, () -> environment.resolvePlaceholders("${host"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.spring.factory;
+
+import org.junit.jupiter.api.Test;
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.BeanReference;
+import org.spring.entity.PropertyValue;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutowiredCapableBeanFactoryTest {
+
+    static class A {
+        B b;
+    }
+
+    static class B {
+        A a;
+    }
+
+    static class C {
+    }
+
+    private static BeanDefinition singleton(Class<?> type, PropertyValue... propertyValues) {
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setBeanClass(type);
+        beanDefinition.setBeanClassName(type.getName());
+        beanDefinition.setSingleton(true);
+        beanDefinition.setPropertyValues(List.of(propertyValues));
+        return beanDefinition;
+    }
+
+    /**
+     * 实例化后停一会，让两个线程都进入创建
+     */
+    private static AutowiredCapableBeanFactory slowFactory() {
+        AutowiredCapableBeanFactory beanFactory = new AutowiredCapableBeanFactory();
+        InstantiationStrategy delegate = new MethodHandleInstantiationStrategy();
+        beanFactory.setInstantiationStrategy((beanDefinition, factory) -> {
+            Object bean = delegate.instantiate(beanDefinition, factory);
+            Thread.sleep(200);
+            return bean;
+        });
+        beanFactory.registerBeanDefinition("a", singleton(A.class, new PropertyValue("b", new BeanReference("b"))));
+        beanFactory.registerBeanDefinition("b", singleton(B.class, new PropertyValue("a", new BeanReference("a"))));
+        beanFactory.registerBeanDefinition("c", singleton(C.class));
+        return beanFactory;
+    }
+
+    @Test
+    void twoThreadsEnteringACycleFromBothEndsDoNotDeadlock() throws Exception {
+        AutowiredCapableBeanFactory beanFactory = slowFactory();
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<Object> a = executor.submit(() -> {
+                start.await();
+                return beanFactory.getBean("a");
+            });
+            Future<Object> b = executor.submit(() -> {
+                start.await();
+                return beanFactory.getBean("b");
+            });
+            start.countDown();
+            A beanA = (A) a.get(10, TimeUnit.SECONDS);
+            B beanB = (B) b.get(10, TimeUnit.SECONDS);
+            assertSame(beanB, beanA.b);
+            assertSame(beanA, beanB.a);
+            assertSame(beanA, beanFactory.getBean("a"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void cycleMembersShareOneCreationLock() {
+        AutowiredCapableBeanFactory beanFactory = slowFactory();
+        BeanDefinition a = beanFactory.beanDefinitionMap.get("a");
+        BeanDefinition b = beanFactory.beanDefinitionMap.get("b");
+        BeanDefinition c = beanFactory.beanDefinitionMap.get("c");
+        Object lock = beanFactory.getCreationLock(a);
+        assertSame(lock, beanFactory.getCreationLock(b));
+        assertNotSame(lock, beanFactory.getCreationLock(c));
+        //注册别的bean之后原来的分量沿用同一把锁
+        beanFactory.registerBeanDefinition("d", singleton(C.class));
+        assertSame(lock, beanFactory.getCreationLock(a));
+        assertSame(lock, beanFactory.getCreationLock(b));
+    }
+}
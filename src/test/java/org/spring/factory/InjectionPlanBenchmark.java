@@ -0,0 +1,92 @@
+package org.spring.factory;
+
+import org.openjdk.jmh.annotations.*;
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.PropertyValue;
+import org.spring.env.Environment;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建prototype时的属性注入：编译好的注入计划对比每次getDeclaredField + setAccessible + Field.set
+ * <p>
+ * mvn -Pjmh verify -Djmh.args="InjectionPlanBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InjectionPlanBenchmark {
+
+    public static class Target {
+        private String name;
+        private int port;
+        private long timeout;
+        private boolean enabled;
+        private String host;
+    }
+
+    private List<PropertyValue> propertyValues;
+    private InjectionPlan plan;
+    private Field[] fields;
+
+    @Setup
+    public void setup() throws Exception {
+        propertyValues = List.of(
+                new PropertyValue("name", "bench"),
+                new PropertyValue("port", 8080),
+                new PropertyValue("timeout", 3000L),
+                new PropertyValue("enabled", true),
+                new PropertyValue("host", "localhost"));
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setBeanClass(Target.class);
+        beanDefinition.setPropertyValues(propertyValues);
+        plan = InjectionPlan.compile(beanDefinition, Map.of(), new Environment(List.of()));
+        fields = new Field[propertyValues.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = Target.class.getDeclaredField(propertyValues.get(i).getName());
+            fields[i].setAccessible(true);
+        }
+    }
+
+    /**
+     * 只有字面量，注入时用不到bean工厂
+     */
+    @Benchmark
+    public Object injectionPlan() throws Exception {
+        Target target = new Target();
+        plan.inject(target, null);
+        return target;
+    }
+
+    /**
+     * 注入计划之前的做法
+     */
+    @Benchmark
+    public Object reflectivePerCreation() throws Exception {
+        Target target = new Target();
+        for (PropertyValue propertyValue : propertyValues) {
+            Field field = target.getClass().getDeclaredField(propertyValue.getName());
+            field.setAccessible(true);
+            field.set(target, propertyValue.getValue());
+        }
+        return target;
+    }
+
+    /**
+     * 缓存Field之后只剩Field.set，用来区分查找字段和反射写入各占多少
+     */
+    @Benchmark
+    public Object reflectiveCachedFields() throws Exception {
+        Target target = new Target();
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].set(target, propertyValues.get(i).getValue());
+        }
+        return target;
+    }
+}
@@ -0,0 +1,51 @@
+package org.spring.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentIndexTest {
+
+    private static ComponentIndex load(Path dir, String... lines) throws IOException {
+        Path index = dir.resolve(ComponentIndex.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, List.of(lines));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, null)) {
+            return ComponentIndex.load(loader);
+        }
+    }
+
+    private static List<String> classNames(List<ComponentIndex.Entry> entries) {
+        return entries.stream().map(ComponentIndex.Entry::getClassName).toList();
+    }
+
+    @Test
+    void candidatesIncludeSubPackagesButNotSiblings(@TempDir Path dir) throws IOException {
+        ComponentIndex index = load(dir,
+                "com.foo.A\tcomponent\ta\tsingleton\t",
+                "com.foo.bar.B\tcontroller\tb\tsingleton\t",
+                "com.foobar.C\tcomponent\tc\tsingleton\t");
+        assertEquals(List.of("com.foo.A", "com.foo.bar.B"), classNames(index.getCandidates("com.foo")));
+        assertEquals(List.of("com.foo.bar.B"), classNames(index.getCandidates("com.foo.bar")));
+        assertEquals(List.of(), index.getCandidates("com.fo"));
+    }
+
+    @Test
+    void emptyBasePackageMatchesEverything(@TempDir Path dir) throws IOException {
+        //默认包下的类名没有点，也要能找到
+        ComponentIndex index = load(dir,
+                "# comment",
+                "com.foo.A\tcomponent\ta\tsingleton\t",
+                "Root\tcomponent\troot\tprototype\t\ttrue");
+        assertEquals(List.of("com.foo.A", "Root"), classNames(index.getCandidates("")));
+        assertEquals(Boolean.TRUE, index.getCandidates("").get(1).getLazyInit());
+    }
+}
@@ -0,0 +1,180 @@
+package org.spring.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassFileScannerTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Marker {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Other {
+        String[] value() default {};
+
+        ElementType type() default ElementType.TYPE;
+
+        Retention nested() default @Retention(RetentionPolicy.RUNTIME);
+    }
+
+    @Retention(RetentionPolicy.CLASS)
+    @interface Invisible {
+    }
+
+    @Marker
+    static class Marked {
+        long big = 1L << 40;
+        double d = 0.5;
+    }
+
+    //Marker前面有带各种元素值的注解，要能正确跳过
+    @Other(value = {"a", "b"}, type = ElementType.FIELD, nested = @Retention(RetentionPolicy.SOURCE))
+    @Marker
+    static class MarkedAfterOther {
+    }
+
+    static class Plain {
+        //常量池里出现了Marker的描述符，但类上没有这个注解
+        @Marker
+        void method() {
+        }
+    }
+
+    @Invisible
+    static class OnlyInvisible {
+    }
+
+    private static final byte[][] MARKER = descriptors(Marker.class);
+
+    private static byte[][] descriptors(Class<?>... annotations) {
+        return Arrays.stream(annotations)
+                .map(a -> ("L" + a.getName().replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    private static byte[] bytes(Class<?> clazz) throws IOException {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = clazz.getClassLoader().getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String annotatedClassName(Class<?> clazz, byte[][] descriptors) throws IOException {
+        return ClassFileScanner.annotatedClassName(ByteBuffer.wrap(bytes(clazz)), descriptors);
+    }
+
+    @Test
+    void findsClassAnnotatedWithTheGivenAnnotation() throws IOException {
+        assertEquals(Marked.class.getName(), annotatedClassName(Marked.class, MARKER));
+        assertEquals(MarkedAfterOther.class.getName(), annotatedClassName(MarkedAfterOther.class, MARKER));
+        assertEquals(MarkedAfterOther.class.getName(), annotatedClassName(MarkedAfterOther.class, descriptors(Other.class)));
+    }
+
+    @Test
+    void ignoresClassesWithoutTheAnnotation() throws IOException {
+        assertNull(annotatedClassName(Plain.class, MARKER));
+        assertNull(annotatedClassName(Marked.class, descriptors(Other.class)));
+        assertNull(annotatedClassName(OnlyInvisible.class, descriptors(Invisible.class)));
+    }
+
+    @Test
+    void ignoresAnnotationTypes() throws IOException {
+        //Other的声明上带着@Retention，注解类型本身不算组件
+        assertNull(annotatedClassName(Other.class, descriptors(Retention.class)));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotClassFiles() {
+        assertNull(ClassFileScanner.annotatedClassName(ByteBuffer.wrap(new byte[4]), MARKER));
+        assertNull(ClassFileScanner.annotatedClassName(ByteBuffer.wrap("not a class file".getBytes(StandardCharsets.US_ASCII)), MARKER));
+    }
+
+    @Test
+    void skipsTruncatedAndCorruptedClassFiles() throws IOException {
+        byte[] bytes = bytes(Marked.class);
+        //截断在常量池或成员表里时读不到类注解；截断在注解之后的属性里时已经认出了类名，也允许
+        //直接调annotatedClassName，越界异常是预期的，不走parse的告警日志
+        for (int length = 10; length < bytes.length; length += 7) {
+            ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+            String className;
+            try {
+                className = ClassFileScanner.annotatedClassName(truncated, MARKER);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                continue;
+            }
+            if (length < bytes.length / 2) {
+                assertNull(className);
+            } else if (className != null) {
+                assertEquals(Marked.class.getName(), className);
+            }
+        }
+        //常量池数量改大，解析会越过文件末尾
+        byte[] corrupted = bytes.clone();
+        corrupted[8] = (byte) 0xFF;
+        corrupted[9] = (byte) 0xFF;
+        assertNull(ClassFileScanner.parse("Marked.class", corrupted, MARKER));
+    }
+
+    @Test
+    void jarPrefixDoesNotMatchSiblingPackages() {
+        assertTrue(ClassFileScanner.inPackage("com/foo/A.class", "com/foo/"));
+        assertTrue(ClassFileScanner.inPackage("com/foo/bar/A.class", "com/foo/"));
+        assertFalse(ClassFileScanner.inPackage("com/foobar/A.class", "com/foo/"));
+        assertFalse(ClassFileScanner.inPackage("com/foo/a.txt", "com/foo/"));
+        assertTrue(ClassFileScanner.inPackage("A.class", ""));
+    }
+
+    @Test
+    void scansJarEntriesUnderThePackageOnly(@TempDir Path dir) throws IOException {
+        Path jar = dir.resolve("test.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("com/foo/"));
+            out.closeEntry();
+            put(out, "com/foo/Marked.class", bytes(Marked.class));
+            put(out, "com/foo/bar/MarkedAfterOther.class", bytes(MarkedAfterOther.class));
+            put(out, "com/foo/Plain.class", bytes(Plain.class));
+            put(out, "com/foo/Broken.class", Arrays.copyOf(bytes(Marked.class), 40));
+            out.putNextEntry(new JarEntry("com/foobar/"));
+            out.closeEntry();
+            put(out, "com/foobar/Other.class", bytes(OnlyInvisible.class));
+        }
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            Set<String> found = ClassFileScanner.scan(loader, "com.foo", Marker.class);
+            assertEquals(Set.of(Marked.class.getName(), MarkedAfterOther.class.getName()), found);
+            assertEquals(Set.of(), ClassFileScanner.scan(loader, "com.foobar", Marker.class));
+        }
+    }
+
+    @Test
+    void scansDirectories() {
+        Set<String> found = ClassFileScanner.scan(getClass().getClassLoader(), "org.spring.reader", Marker.class);
+        assertTrue(found.containsAll(Set.of(Marked.class.getName(), MarkedAfterOther.class.getName())));
+        assertFalse(found.contains(Plain.class.getName()));
+    }
+
+    private static void put(JarOutputStream out, String name, byte[] bytes) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        out.write(bytes);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,103 @@
+package org.spring.reader;
+
+import org.openjdk.jmh.annotations.*;
+import org.spring.entity.BeanDefinition;
+import org.spring.entity.BeanReference;
+import org.spring.entity.PropertyValue;
+import org.spring.io.ResourceLoader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析生成的大XML配置：现在的StAX单遍读取对比原来的DOM先建整棵树再遍历
+ * <p>
+ * mvn -Pjmh verify -Djmh.args="XmlBeanDefinitionReaderBenchmark"
+ * 加 -prof gc 可以看到两边每次解析分配的内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlBeanDefinitionReaderBenchmark {
+
+    public static class Target {
+        private String name;
+        private int port;
+        private Target next;
+    }
+
+    @Param({"1000", "5000"})
+    private int beans;
+
+    private byte[] xml;
+    private XmlBeanDefinitionReader reader;
+    private DocumentBuilderFactory documentBuilderFactory;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<beans>\n");
+        for (int i = 0; i < beans; i++) {
+            sb.append("    <bean id=\"bean").append(i).append("\" class=\"").append(Target.class.getName())
+                    .append("\" scope=\"").append(i % 10 == 0 ? "prototype" : "singleton").append("\">\n")
+                    .append("        <property name=\"name\" value=\"bean").append(i).append("\"/>\n")
+                    .append("        <property name=\"port\" value=\"").append(8000 + i).append("\"/>\n");
+            if (i > 0) {
+                sb.append("        <property name=\"next\" ref=\"bean").append(i - 1).append("\"/>\n");
+            }
+            sb.append("    </bean>\n");
+        }
+        xml = sb.append("</beans>\n").toString().getBytes(StandardCharsets.UTF_8);
+        reader = new XmlBeanDefinitionReader(new ResourceLoader());
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+    }
+
+    @Benchmark
+    public List<Object> stax() throws Exception {
+        return reader.doLoadBeanDefinitions(new ByteArrayInputStream(xml));
+    }
+
+    /**
+     * 改成StAX之前的做法，只保留bean和property的处理
+     */
+    @Benchmark
+    public Map<String, BeanDefinition> dom() throws Exception {
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        Map<String, BeanDefinition> registry = new LinkedHashMap<>();
+        NodeList nodeList = document.getDocumentElement().getChildNodes();
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Node node = nodeList.item(i);
+            if (node instanceof Element ele) {
+                String className = ele.getAttribute("class");
+                BeanDefinition beanDefinition = new BeanDefinition();
+                beanDefinition.setPropertyValues(new ArrayList<>());
+                beanDefinition.setSingleton(!"prototype".equals(ele.getAttribute("scope")));
+                beanDefinition.setBeanClassName(className);
+                beanDefinition.setBeanClass(Class.forName(className));
+                NodeList propertyNode = ele.getElementsByTagName("property");
+                for (int j = 0; j < propertyNode.getLength(); j++) {
+                    Element propertyEle = (Element) propertyNode.item(j);
+                    String name = propertyEle.getAttribute("name");
+                    String value = propertyEle.getAttribute("value");
+                    beanDefinition.getPropertyValues().add(value.length() > 0
+                            ? new PropertyValue(name, value)
+                            : new PropertyValue(name, new BeanReference(propertyEle.getAttribute("ref"))));
+                }
+                registry.put(ele.getAttribute("id"), beanDefinition);
+            }
+        }
+        return registry;
+    }
+}
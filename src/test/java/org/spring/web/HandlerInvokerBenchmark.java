@@ -0,0 +1,72 @@
+package org.spring.web;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理器调用：绑定了controller的MethodHandle对比Method.invoke
+ * <p>
+ * mvn -Pjmh verify -Djmh.args="HandlerInvokerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerInvokerBenchmark {
+
+    public static class UserController {
+        public String user(String id, int page) {
+            return id;
+        }
+
+        public void touch(String id) {
+        }
+    }
+
+    private HandlerInvoker methodHandle;
+    private HandlerInvoker reflective;
+    private HandlerInvoker methodHandleVoid;
+    private HandlerInvoker reflectiveVoid;
+    private Object[] args;
+    private Object[] voidArgs;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        UserController controller = new UserController();
+        Method user = UserController.class.getMethod("user", String.class, int.class);
+        Method touch = UserController.class.getMethod("touch", String.class);
+        methodHandle = HandlerInvoker.of(controller, user);
+        reflective = new HandlerInvoker.ReflectiveInvoker(controller, user);
+        methodHandleVoid = HandlerInvoker.of(controller, touch);
+        reflectiveVoid = new HandlerInvoker.ReflectiveInvoker(controller, touch);
+        if (!(methodHandle instanceof HandlerInvoker.MethodHandleInvoker)) {
+            throw new IllegalStateException("没有编译成MethodHandle");
+        }
+        args = new Object[]{"42", 3};
+        voidArgs = new Object[]{"42"};
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return methodHandle.invoke(args);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return reflective.invoke(args);
+    }
+
+    @Benchmark
+    public Object methodHandleVoid() throws Exception {
+        return methodHandleVoid.invoke(voidArgs);
+    }
+
+    @Benchmark
+    public Object reflectiveVoid() throws Exception {
+        return reflectiveVoid.invoke(voidArgs);
+    }
+}
@@ -0,0 +1,118 @@
+package org.spring.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteTrieTest {
+
+    private static RouteTrie<String> trie(String... patterns) {
+        RouteTrie<String> trie = new RouteTrie<>();
+        for (String pattern : patterns) {
+            trie.insert(pattern, pattern);
+        }
+        return trie;
+    }
+
+    private static String handler(RouteTrie<String> trie, String path) {
+        RouteTrie.RouteMatch<String> match = trie.match(path, 0);
+        return match == null ? null : match.getHandler();
+    }
+
+    @Test
+    void matchesStaticRoutesIgnoringRepeatedAndTrailingSlashes() {
+        RouteTrie<String> trie = trie("/test/test1", "/test/test2", "/");
+        assertEquals("/test/test1", handler(trie, "/test/test1"));
+        assertEquals("/test/test1", handler(trie, "//test///test1/"));
+        assertEquals("/test/test2", handler(trie, "/test/test2"));
+        assertEquals("/", handler(trie, "/"));
+        assertNull(handler(trie, "/test"));
+        assertNull(handler(trie, "/test/test3"));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void skipsContextPathByOffset() {
+        RouteTrie<String> trie = trie("/user/{id}");
+        RouteTrie.RouteMatch<String> match = trie.match("/app/user/7", "/app".length());
+        assertNotNull(match);
+        assertArrayEquals(new String[]{"7"}, match.getVariables());
+    }
+
+    @Test
+    void capturesPathVariablesInDeclarationOrder() {
+        RouteTrie<String> trie = trie("/user/{id}/order/{orderId}");
+        RouteTrie.RouteMatch<String> match = trie.match("/user/42/order/abc", 0);
+        assertArrayEquals(new String[]{"42", "abc"}, match.getVariables());
+        assertArrayEquals(new String[]{"id", "orderId"}, RouteTrie.variableNames("/user/{id}/order/{orderId}"));
+    }
+
+    @Test
+    void prefersStaticOverVariableOverWildcardOverCatchAll() {
+        RouteTrie<String> trie = trie("/a/b", "/a/{x}", "/a/*", "/a/**");
+        assertEquals("/a/b", handler(trie, "/a/b"));
+        assertEquals("/a/{x}", handler(trie, "/a/c"));
+        assertEquals("/a/**", handler(trie, "/a/c/d"));
+        assertEquals("/a/**", handler(trie, "/a"));
+    }
+
+    @Test
+    void backtracksWhenTheStaticBranchDeadEnds() {
+        RouteTrie<String> trie = trie("/a/b/d", "/a/{x}/c", "/a/*/e", "/a/**");
+        //b先走静态分支，后面对不上要退回来试路径变量
+        RouteTrie.RouteMatch<String> match = trie.match("/a/b/c", 0);
+        assertEquals("/a/{x}/c", match.getHandler());
+        assertArrayEquals(new String[]{"b"}, match.getVariables());
+        assertEquals("/a/*/e", handler(trie, "/a/b/e"));
+        assertEquals("/a/**", handler(trie, "/a/b/f"));
+    }
+
+    @Test
+    void variableOffsetsAreNotLeakedFromAFailedBranch() {
+        RouteTrie<String> trie = trie("/{a}/x/{b}", "/{a}/{c}/y");
+        RouteTrie.RouteMatch<String> match = trie.match("/1/x/y", 0);
+        assertEquals("/{a}/x/{b}", match.getHandler());
+        assertArrayEquals(new String[]{"1", "y"}, match.getVariables());
+        match = trie.match("/1/z/y", 0);
+        assertEquals("/{a}/{c}/y", match.getHandler());
+        assertArrayEquals(new String[]{"1", "z"}, match.getVariables());
+    }
+
+    @Test
+    void rejectsDuplicateRoutes() {
+        RouteTrie<String> trie = trie("/a/b");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> trie.insert("/a//b/", "again"));
+        assertTrue(e.getMessage().contains("/a//b/"));
+        trie.insert("/a/**", "all");
+        assertThrows(IllegalStateException.class, () -> trie.insert("/a/**", "again"));
+    }
+
+    @Test
+    void rejectsRoutesThatDifferOnlyInVariableNames() {
+        RouteTrie<String> trie = trie("/user/{id}");
+        assertThrows(IllegalStateException.class, () -> trie.insert("/user/{name}", "ambiguous"));
+    }
+
+    @Test
+    void rejectsCatchAllBeforeTheEnd() {
+        assertThrows(IllegalArgumentException.class, () -> trie("/a/**/b"));
+    }
+
+    @Test
+    void percentDecodesVariablesAfterMatching() {
+        RouteTrie<String> trie = trie("/file/{name}", "/file/{name}/meta");
+        RouteTrie.RouteMatch<String> match = trie.match("/file/a%2Fb", 0);
+        assertEquals("/file/{name}", match.getHandler());
+        assertArrayEquals(new String[]{"a/b"}, match.getVariables());
+        assertArrayEquals(new String[]{"中文 x+y"}, trie.match("/file/%E4%B8%AD%E6%96%87%20x+y", 0).getVariables());
+        assertEquals("/file/{name}/meta", trie.match("/file/a%2Fb/meta", 0).getHandler());
+    }
+
+    @Test
+    void leavesMalformedEscapesUndecoded() {
+        RouteTrie<String> trie = trie("/file/{name}");
+        assertArrayEquals(new String[]{"100%"}, trie.match("/file/100%", 0).getVariables());
+        assertArrayEquals(new String[]{"%zz"}, trie.match("/file/%zz", 0).getVariables());
+        assertArrayEquals(new String[]{"%C3%28"}, trie.match("/file/%C3%28", 0).getVariables());
+    }
+}
@@ -0,0 +1,117 @@
+package org.spring.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spring.io.ResourceLoader;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticResourceHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    private StaticResourceHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path www = Files.createDirectories(dir.resolve("www"));
+        Files.writeString(www.resolve("index.html"), "<h1>hi</h1>");
+        Files.writeString(www.resolve("a b.txt"), "space");
+        Files.writeString(dir.resolve("secret.txt"), "secret");
+        handler = new StaticResourceHandler(Map.of("/static/", "file:" + www + "/"), new ResourceLoader(), null, 1024 * 1024);
+    }
+
+    /**
+     * 只记录状态码和响应体
+     */
+    private static final class Result {
+        int status = HttpServletResponse.SC_OK;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        String body() {
+            return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private Result get(String path) throws IOException {
+        Result result = new Result();
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getDateHeader" -> -1L;
+                    default -> null;
+                });
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                result.body.write(b);
+            }
+        };
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "sendError", "setStatus" -> result.status = (Integer) args[0];
+                        case "getOutputStream" -> {
+                            return out;
+                        }
+                        case "isCommitted", "containsHeader" -> {
+                            return false;
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+        assertTrue(handler.handle(request, response, path));
+        return result;
+    }
+
+    @Test
+    void servesFilesUnderTheMappedDirectory() throws IOException {
+        Result result = get("/static/index.html");
+        assertEquals(HttpServletResponse.SC_OK, result.status);
+        assertEquals("<h1>hi</h1>", result.body());
+        assertEquals("space", get("/static/a%20b.txt").body());
+    }
+
+    @Test
+    void rejectsDoubleEncodedTraversal() throws IOException {
+        Result result = get("/static/%252e%252e/secret.txt");
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, result.status);
+        assertEquals("", result.body());
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/%252e%252e%252fsecret.txt").status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/%25252e%25252e/secret.txt").status);
+    }
+
+    @Test
+    void rejectsSingleEncodedTraversal() throws IOException {
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/../secret.txt").status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/%2e%2e/secret.txt").status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/..%2fsecret.txt").status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/%2fetc/passwd").status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/static/").status);
+    }
+}
@@ -0,0 +1,51 @@
+package org.spring.web.compress;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spring.web.compress.ContentCoding.DEFLATE;
+import static org.spring.web.compress.ContentCoding.GZIP;
+
+class ContentCodingTest {
+
+    @Test
+    void noHeaderMeansIdentity() {
+        assertNull(ContentCoding.negotiate(null));
+        assertNull(ContentCoding.negotiate(" "));
+        assertNull(ContentCoding.negotiate("br, identity"));
+    }
+
+    @Test
+    void prefersGzipOnEqualQuality() {
+        assertEquals(GZIP, ContentCoding.negotiate("gzip, deflate"));
+        assertEquals(GZIP, ContentCoding.negotiate("deflate, gzip"));
+        assertEquals(GZIP, ContentCoding.negotiate("*"));
+        assertEquals(GZIP, ContentCoding.negotiate("X-GZIP"));
+    }
+
+    @Test
+    void picksTheHighestQuality() {
+        assertEquals(DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(DEFLATE, ContentCoding.negotiate("gzip; Q=0.5, deflate"));
+        assertEquals(GZIP, ContentCoding.negotiate("deflate;q=0.1, *;q=0.5"));
+    }
+
+    @Test
+    void zeroQualityRejectsACoding() {
+        assertEquals(DEFLATE, ContentCoding.negotiate("gzip;q=0, deflate"));
+        assertNull(ContentCoding.negotiate("gzip;q=0"));
+        assertNull(ContentCoding.negotiate("gzip;q=0.0, deflate;q=0"));
+        assertNull(ContentCoding.negotiate("*;q=0"));
+        //单独列出的q值优先于*
+        assertEquals(GZIP, ContentCoding.negotiate("gzip, *;q=0"));
+        assertNull(ContentCoding.negotiate("gzip;q=abc"));
+    }
+
+    @Test
+    void choosesOnlyAmongAvailableCodings() {
+        assertEquals(GZIP, ContentCoding.negotiate("gzip;q=0.1, deflate", GZIP));
+        assertNull(ContentCoding.negotiate("deflate", GZIP));
+        assertNull(ContentCoding.negotiate("gzip;q=0, deflate", GZIP));
+        assertEquals(DEFLATE, ContentCoding.negotiate("gzip, deflate", DEFLATE, GZIP));
+    }
+}
@@ -0,0 +1,143 @@
+package org.spring.web.json;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体绑定：流式读取直接绑定对比先解析成Map/List树再映射到对象
+ * <p>
+ * 两条路径用同一个分词器，差别只在中间那棵树和第二遍遍历。
+ * mvn -Pjmh verify -Djmh.args="JsonReaderBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonReaderBenchmark {
+
+    public static class Order {
+        String id;
+        long customerId;
+        boolean paid;
+        Address address;
+        List<Item> items;
+    }
+
+    public static class Address {
+        String city;
+        String street;
+        int zip;
+    }
+
+    public static class Item {
+        String sku;
+        int quantity;
+        double price;
+        List<String> tags;
+    }
+
+    /**
+     * 每个订单的商品数
+     */
+    @Param({"10", "1000"})
+    public int items;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":\"order-1\",\"customerId\":123456789,\"paid\":true,")
+                .append("\"address\":{\"city\":\"上海\",\"street\":\"南京路100号\",\"zip\":200001},\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"sku\":\"SKU-").append(i).append("\",\"quantity\":").append(i % 7 + 1)
+                    .append(",\"price\":").append(i * 1.25).append(",\"tags\":[\"a\",\"b\\n\",\"c\"]}");
+        }
+        json.append("]}");
+        body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object streaming() throws IOException {
+        return JsonReader.read(new ByteArrayInputStream(body), Order.class, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Object treeThenMap() throws IOException {
+        Object tree = JsonReader.read(new ByteArrayInputStream(body), Object.class, Long.MAX_VALUE);
+        return TreeMapper.map(tree, Order.class);
+    }
+
+    /**
+     * 从Map/List树映射到对象，字段按类缓存，只支持这里用到的类型
+     */
+    static final class TreeMapper {
+
+        private static final ClassValue<Map<String, Field>> FIELDS = new ClassValue<>() {
+            @Override
+            protected Map<String, Field> computeValue(Class<?> type) {
+                Map<String, Field> fields = new HashMap<>();
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.put(field.getName(), field);
+                    }
+                }
+                return fields;
+            }
+        };
+
+        static Object map(Object node, Type type) {
+            if (node == null) {
+                return null;
+            }
+            Class<?> raw = type instanceof ParameterizedType parameterized ? (Class<?>) parameterized.getRawType() : (Class<?>) type;
+            if (raw == String.class || raw == boolean.class) {
+                return node;
+            }
+            if (raw == int.class) {
+                return ((Number) node).intValue();
+            }
+            if (raw == long.class) {
+                return ((Number) node).longValue();
+            }
+            if (raw == double.class) {
+                return ((Number) node).doubleValue();
+            }
+            if (raw == List.class) {
+                Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+                List<?> list = (List<?>) node;
+                List<Object> result = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    result.add(map(element, elementType));
+                }
+                return result;
+            }
+            try {
+                Object target = raw.getDeclaredConstructor().newInstance();
+                Map<String, Field> fields = FIELDS.get(raw);
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                    Field field = fields.get((String) entry.getKey());
+                    if (field != null) {
+                        field.set(target, map(entry.getValue(), field.getGenericType()));
+                    }
+                }
+                return target;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
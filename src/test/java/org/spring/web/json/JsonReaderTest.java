@@ -0,0 +1,180 @@
+package org.spring.web.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonReaderTest {
+
+    enum Color {RED, GREEN}
+
+    record Point(int x, int y, String label) {
+    }
+
+    static class User {
+        private String name;
+        int age;
+        List<Point> points;
+        Map<String, Long> scores;
+        Color color;
+        boolean active;
+        transient String ignored;
+
+        public void setName(String name) {
+            this.name = "set:" + name;
+        }
+    }
+
+    static class Holder {
+        List<Map<String, Set<Integer>>> nested;
+        int[] numbers;
+    }
+
+    record Event(UUID id, LocalDate day, LocalDateTime at, Instant created, List<LocalDate> holidays) {
+    }
+
+    private static Object read(String json, Type type) throws IOException {
+        return read(json.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    private static Object read(byte[] json, Type type) throws IOException {
+        return JsonReader.read(new ByteArrayInputStream(json), type, Long.MAX_VALUE);
+    }
+
+    private static String error(String json, Type type) {
+        return assertThrows(JsonException.class, () -> read(json, type)).getMessage();
+    }
+
+    private static String error(byte[] json, Type type) {
+        return assertThrows(JsonException.class, () -> read(json, type)).getMessage();
+    }
+
+    @Test
+    void bindsRecordsAndDefaultsMissingPrimitives() throws IOException {
+        assertEquals(new Point(1, -2, "a"), read("{\"x\":1,\"y\":-2,\"label\":\"a\"}", Point.class));
+        assertEquals(new Point(0, 5, null), read(" {\"y\" : 5 , \"unknown\": {\"a\":[1,{\"b\":null}]}} ", Point.class));
+    }
+
+    @Test
+    void bindsBeansThroughSettersAndFields() throws IOException {
+        User user = (User) read("""
+                {"name":"tom","age":"30","points":[{"x":1,"y":2}],"scores":{"math":99},
+                 "color":"GREEN","active":true,"ignored":"x","extra":[true,false,null,1.5e3]}
+                """, User.class);
+        assertEquals("set:tom", user.name);
+        assertEquals(30, user.age);
+        assertEquals(List.of(new Point(1, 2, null)), user.points);
+        assertEquals(Map.of("math", 99L), user.scores);
+        assertEquals(Color.GREEN, user.color);
+        assertTrue(user.active);
+        assertNull(user.ignored);
+    }
+
+    @Test
+    void bindsGenericCollectionsAndArrays() throws IOException {
+        Holder holder = (Holder) read("{\"nested\":[{\"a\":[1,2,2]}],\"numbers\":[3,4]}", Holder.class);
+        assertEquals(List.of(Map.of("a", Set.of(1, 2))), holder.nested);
+        assertArrayEquals(new int[]{3, 4}, holder.numbers);
+    }
+
+    @Test
+    void bindsDatesAndUuidsFromStrings() throws IOException {
+        Event event = (Event) read("""
+                {"id":"123e4567-e89b-12d3-a456-426614174000","day":"2024-02-29","at":"2024-01-02T03:04:05",
+                 "created":"2024-01-02T03:04:05.123Z","holidays":["2024-01-01","2024-05-01"]}
+                """, Event.class);
+        assertEquals(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), event.id());
+        assertEquals(LocalDate.of(2024, 2, 29), event.day());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), event.at());
+        assertEquals(Instant.parse("2024-01-02T03:04:05.123Z"), event.created());
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 5, 1)), event.holidays());
+        assertTrue(error("{\"day\":\"2024-13-01\"}", Event.class).contains("值不能转换成 java.time.LocalDate"));
+        assertTrue(error("{\"thread\":\"x\"}", Unsupported.class).contains("不支持绑定到类型"));
+    }
+
+    record Unsupported(Thread thread) {
+    }
+
+    @Test
+    void readsNaturalTypesForObject() throws IOException {
+        Object value = read("{\"a\":[1,2.5,\"s\",true,null],\"big\":12345678901234567890}", Object.class);
+        Map<?, ?> map = (Map<?, ?>) value;
+        assertEquals(java.util.Arrays.asList(1L, 2.5, "s", true, null), map.get("a"));
+        assertEquals(new BigInteger("12345678901234567890"), map.get("big"));
+    }
+
+    @Test
+    void emptyInputAndNullReadAsNull() throws IOException {
+        assertNull(read("", Point.class));
+        assertNull(read("  null ", Point.class));
+    }
+
+    @Test
+    void decodesEscapesAndUtf8() throws IOException {
+        assertEquals("\"\\/\b\f\n\r\t\u00e9", read("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00E9\"", String.class));
+        assertEquals("😀", read("\"\\ud83d\\ude00\"", String.class));
+        assertEquals("中文😀é", read("\"中文😀é\"", String.class));
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertTrue(error("{\"x\":1", Point.class).contains("期望','或'}'"));
+        assertTrue(error("[1,", int[].class).contains("JSON没有结束"));
+        assertTrue(error("{\"x\":1}}", Point.class).contains("多余内容"));
+        assertTrue(error("[1 2]", int[].class).contains("期望','或']'"));
+        assertTrue(error("{x:1}", Point.class).contains("期望'\"'"));
+        assertTrue(error("\"abc", String.class).contains("字符串没有结束"));
+        assertTrue(error("\"a\nb\"", String.class).contains("控制字符"));
+        assertTrue(error("\"\\x\"", String.class).contains("非法的转义"));
+        assertTrue(error("\"\\u12g4\"", String.class).contains("十六进制"));
+        assertTrue(error("nul", Point.class).contains("期望null"));
+        assertTrue(error("{\"x\":\"1a\"}", Point.class).contains("int"));
+        assertTrue(error("\"BLUE\"", Color.class).contains("不是 Color 的枚举值"));
+        assertTrue(error("[1,null]", int[].class).contains("不能是null"));
+    }
+
+    @Test
+    void errorsReportTheBytePosition() {
+        assertTrue(error("[1,2,x]", int[].class).endsWith("，位置 5"));
+    }
+
+    @Test
+    void rejectsMalformedUtf8() {
+        assertTrue(error(new byte[]{'"', (byte) 0xC3, 0x28, '"'}, String.class).contains("不是合法的UTF-8"));
+        assertTrue(error(new byte[]{'"', (byte) 0xE4, (byte) 0xB8, '"'}, String.class).contains("不是合法的UTF-8"));
+        assertTrue(error(new byte[]{'"', (byte) 0xFF, '"'}, String.class).contains("不是合法的UTF-8"));
+        assertTrue(error(new byte[]{'"', (byte) 0xF0, (byte) 0x9F}, String.class).contains("不是合法的UTF-8"));
+    }
+
+    @Test
+    void limitsNestingDepth() throws IOException {
+        String ok = "[".repeat(60) + "]".repeat(60);
+        assertNotNull(read(ok, Object.class));
+        String deep = "[".repeat(100) + "]".repeat(100);
+        assertTrue(error(deep, Object.class).contains("嵌套超过64层"));
+        //跳过未知属性时同样限制深度
+        assertTrue(error("{\"unknown\":" + deep + "}", Point.class).contains("嵌套超过64层"));
+    }
+
+    @Test
+    void stopsReadingPastMaxBytes() {
+        byte[] json = ("[\"" + "a".repeat(20000) + "\"]").getBytes(StandardCharsets.UTF_8);
+        InputStream in = new ByteArrayInputStream(json);
+        assertThrows(BodyTooLargeException.class, () -> JsonReader.read(in, Object.class, 10000));
+        assertDoesNotThrow(() -> JsonReader.read(new ByteArrayInputStream(json), Object.class, json.length));
+    }
+}
@@ -0,0 +1,136 @@
+package org.spring.web.json;
+
+import org.junit.jupiter.api.Test;
+import org.spring.web.result.ResponseBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonWriterTest {
+
+    enum Color {RED}
+
+    record Point(int x, int y, String label) {
+    }
+
+    public static class Bean {
+        private final String name = "n";
+        public int count = 3;
+        private transient String secret = "s";
+        private boolean active = true;
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public String getComputed() {
+            return "c";
+        }
+    }
+
+    private static String write(Object value) {
+        ResponseBuffer buffer = new ResponseBuffer();
+        try {
+            JsonWriter.write(value, buffer);
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    void writesScalars() {
+        assertEquals("null", write(null));
+        assertEquals("true", write(true));
+        assertEquals("42", write(42));
+        assertEquals("-7", write(-7L));
+        assertEquals("1.5", write(1.5));
+        assertEquals("null", write(Double.NaN));
+        assertEquals("null", write(Float.POSITIVE_INFINITY));
+        assertEquals("1.10", write(new BigDecimal("1.10")));
+        assertEquals("\"RED\"", write(Color.RED));
+        assertEquals("\"x\"", write('x'));
+        assertEquals("\"AQI=\"", write(new byte[]{1, 2}));
+    }
+
+    @Test
+    void writesCollectionsMapsAndArrays() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", List.of(1, 2));
+        map.put("b", new int[]{3});
+        map.put("c", Optional.empty());
+        map.put("d", Optional.of("v"));
+        map.put("e", null);
+        assertEquals("{\"a\":[1,2],\"b\":[3],\"c\":null,\"d\":\"v\",\"e\":null}", write(map));
+        assertEquals("[]", write(List.of()));
+        assertEquals("{}", write(Map.of()));
+    }
+
+    @Test
+    void writesRecordsInComponentOrder() {
+        assertEquals("{\"x\":1,\"y\":2,\"label\":null}", write(new Point(1, 2, null)));
+    }
+
+    @Test
+    void writesBeansInFieldOrderThenRemainingGetters() {
+        assertEquals("{\"name\":\"n\",\"count\":3,\"active\":true,\"computed\":\"c\"}", write(new Bean()));
+    }
+
+    @Test
+    void escapesStrings() {
+        assertEquals("\"\\\"\\\\\\n\\r\\t\\b\\f\\u0001/\"", write("\"\\\n\r\t\b\f\u0001/"));
+        //JS里的行分隔符也转义
+        assertEquals("\"\\u2028\\u2029\"", write("\u2028\u2029"));
+    }
+
+    @Test
+    void encodesUtf8AndReplacesUnpairedSurrogates() {
+        assertEquals("\"中é😀\"", write("中é😀"));
+        assertEquals("\"?a?\"", write("\ud83da\ude00"));
+        assertEquals("\"?\"", write("\ud83d"));
+    }
+
+    @Test
+    void failsOnCyclicReferences() {
+        List<Object> list = new ArrayList<>();
+        list.add(list);
+        assertThrows(IllegalStateException.class, () -> write(list));
+    }
+
+    record Event(UUID id, LocalDate day, Instant created, ZonedDateTime zoned, Duration timeout, List<LocalDateTime> times) {
+    }
+
+    @Test
+    void writesDatesAndUuidsAsStrings() {
+        UUID id = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        assertEquals("\"123e4567-e89b-12d3-a456-426614174000\"", write(id));
+        assertEquals("\"2024-02-29\"", write(LocalDate.of(2024, 2, 29)));
+        assertEquals("\"PT1M\"", write(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void datesAndUuidsRoundTripThroughJsonReader() throws IOException {
+        Event event = new Event(UUID.randomUUID(), LocalDate.of(2024, 2, 29), Instant.now(),
+                ZonedDateTime.of(2024, 1, 2, 3, 4, 5, 6, ZoneId.of("Asia/Shanghai")), Duration.ofMillis(1500),
+                List.of(LocalDateTime.of(2024, 1, 2, 3, 4, 5)));
+        byte[] json = write(event).getBytes(StandardCharsets.UTF_8);
+        assertEquals(event, JsonReader.read(new ByteArrayInputStream(json), Event.class, json.length));
+    }
+
+    @Test
+    void roundTripsThroughJsonReader() throws IOException {
+        Point point = new Point(-1, Integer.MAX_VALUE, "中\"\\\n😀\u2028");
+        byte[] json = write(point).getBytes(StandardCharsets.UTF_8);
+        assertEquals(point, JsonReader.read(new ByteArrayInputStream(json), Point.class, json.length));
+    }
+}
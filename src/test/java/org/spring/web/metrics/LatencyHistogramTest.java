@@ -0,0 +1,124 @@
+package org.spring.web.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    /**
+     * 值一定落在自己桶的上界以内，并且大于前一个桶的上界
+     */
+    private static void assertInBucket(long value) {
+        int index = LatencyHistogram.index(value);
+        assertTrue(value <= LatencyHistogram.upperBound(index), () -> value + " 超过桶 " + index + " 的上界");
+        if (index > 0) {
+            assertTrue(value > LatencyHistogram.upperBound(index - 1), () -> value + " 应该落在前一个桶 " + (index - 1));
+        }
+    }
+
+    @Test
+    void smallValuesHaveTheirOwnBuckets() {
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, LatencyHistogram.index(i));
+            assertEquals(i, LatencyHistogram.upperBound(i));
+        }
+        assertEquals(8, LatencyHistogram.index(8));
+        assertEquals(8, LatencyHistogram.upperBound(8));
+        assertEquals(15, LatencyHistogram.index(15));
+        assertEquals(16, LatencyHistogram.index(16));
+        assertEquals(17, LatencyHistogram.upperBound(16));
+    }
+
+    @Test
+    void bucketsAreContiguousAndMonotonic() {
+        int last = LatencyHistogram.index(MAX_VALUE);
+        assertTrue(last < 300);
+        assertEquals(MAX_VALUE, LatencyHistogram.upperBound(last));
+        for (int i = 1; i <= last; i++) {
+            long upper = LatencyHistogram.upperBound(i);
+            assertTrue(upper > LatencyHistogram.upperBound(i - 1));
+            assertEquals(i, LatencyHistogram.index(upper));
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.upperBound(i - 1) + 1));
+        }
+    }
+
+    @Test
+    void boundariesAroundPowersOfTwo() {
+        for (int exponent = 1; exponent < 36; exponent++) {
+            long power = 1L << exponent;
+            assertInBucket(power - 1);
+            assertInBucket(power);
+            assertInBucket(power + 1);
+        }
+        assertInBucket(MAX_VALUE);
+    }
+
+    @Test
+    void relativeErrorIsBoundedByTheSubBucketWidth() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(1, MAX_VALUE + 1);
+            assertInBucket(value);
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+            assertTrue(upper - value <= value / 8, () -> "误差过大: " + value + " -> " + upper);
+        }
+    }
+
+    @Test
+    void snapshotReportsQuantilesCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtQuantile(0.99));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 10L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50_500, snapshot.getSum());
+        assertEquals(505.0, snapshot.getMean());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(1000, snapshot.getValueAtQuantile(1.0));
+        assertEquals(10, snapshot.getValueAtQuantile(0));
+        long p50 = snapshot.getValueAtQuantile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 500 + 500 / 8, () -> "p50=" + p50);
+        long p99 = snapshot.getValueAtQuantile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000, () -> "p99=" + p99);
+        assertEquals(100, snapshot.getCountAtOrBelow(MAX_VALUE));
+        assertEquals(0, snapshot.getCountAtOrBelow(9));
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(MAX_VALUE, snapshot.getMax());
+        assertEquals(1, snapshot.getCountAtOrBelow(0));
+    }
+
+    @Test
+    void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i % 100);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(80_000, histogram.snapshot().getCount());
+        assertEquals(800, histogram.snapshot().getCountAtOrBelow(0));
+    }
+}